@@ -1,66 +1,202 @@
 package com.pdf.printer.config;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.Map;
+import com.pdf.printer.service.ShopRegistry;
 
+/**
+ * Pushes payment updates to the sessions subscribed to a shop. A client subscribes after connecting
+ * by sending {@code {"action":"subscribe","shopId":3}} (kiosk) or
+ * {@code {"action":"subscribe","phone":"9876543210"}} (owner dashboard). The shop id is public (it is
+ * in the kiosk's QR link), so kiosk sessions only learn that a payment went through; amounts and
+ * totals go to owner sessions, which must have signed in before the handshake. A session follows one
+ * shop at a time and {@code {"action":"unsubscribe"}} stops the updates. Publishing only touches the
+ * sessions of that shop.
+ */
 @Component
 public class PaymentWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentWebSocketHandler.class);
-    private final List<WebSocketSession> sessions = new CopyOnWriteArrayList<>();
+
+    // Decorated sessions by session id, and the topic index: shop id -> its subscribers
+    private final Map<String, Subscriber> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ShopRegistry shopRegistry;
+    private final int sendTimeLimitMs;
+    private final int bufferSizeLimit;
+
+    public PaymentWebSocketHandler(ShopRegistry shopRegistry,
+                                   @Value("${print.ws.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                                   @Value("${print.ws.buffer-size-limit:65536}") int bufferSizeLimit) {
+        this.shopRegistry = shopRegistry;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    private static final class Subscriber {
+        final WebSocketSession session;
+        volatile Integer shopId;
+        volatile boolean owner;
+
+        Subscriber(WebSocketSession session) {
+            this.session = session;
+        }
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
+        // The decorator serializes concurrent sends and drops the oldest buffered updates for a
+        // client that cannot keep up, so one slow kiosk never holds up a publisher
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+        sessions.put(session.getId(), new Subscriber(decorated));
         log.info("WebSocket connection established: {}", session.getId());
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status)
-            throws Exception {
-        sessions.remove(session);
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        remove(session.getId());
         log.info("WebSocket connection closed: {} with status {}", session.getId(), status);
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        // You can handle messages sent by clients here if needed
-        log.info("Received message from {}: {}", session.getId(), message.getPayload());
-    }@Override
+        Subscriber subscriber = sessions.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            reply(subscriber, Map.of("type", "error", "message", "Malformed message"));
+            return;
+        }
+        switch (request.path("action").asText("")) {
+            case "subscribe" -> {
+                boolean owner = !request.has("shopId");
+                if (owner && session.getPrincipal() == null) {
+                    reply(subscriber, Map.of("type", "error", "message", "Sign in to follow a shop's payments"));
+                    return;
+                }
+                ShopRegistry.ShopInfo shop = (owner
+                        ? shopRegistry.findByPhone(request.path("phone").asText(""))
+                        : shopRegistry.get(request.path("shopId").asInt(-1))).orElse(null);
+                if (shop == null) {
+                    reply(subscriber, Map.of("type", "error", "message", "Unknown shop"));
+                    return;
+                }
+                subscribe(subscriber, shop.id(), owner);
+                reply(subscriber, Map.of("type", "subscribed", "shopId", shop.id()));
+            }
+            case "unsubscribe" -> subscribe(subscriber, null, false);
+            default -> reply(subscriber, Map.of("type", "error", "message", "Unknown action"));
+        }
+    }
+
+    @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("WebSocket transport error for session {}: {}", session.getId(), exception.getMessage(), exception);
-        sessions.remove(session);
+        remove(session.getId());
     }
 
-    public void broadcastPayment(int amount) {
-        String messageJson;
+    /**
+     * Sends {@code update} to the owner sessions subscribed to the shop and {@code status} to its
+     * kiosk sessions, each serialized once.
+     */
+    public void publish(int shopId, Map<String, Object> status, Map<String, Object> update) {
+        Set<Subscriber> topic = subscribers.get(shopId);
+        if (topic == null || topic.isEmpty()) {
+            return;
+        }
+        TextMessage kioskMessage;
+        TextMessage ownerMessage;
         try {
-            messageJson = objectMapper.writeValueAsString(Map.of("amount", amount));
-            TextMessage message = new TextMessage(messageJson);
-            for (WebSocketSession session : sessions) {
-            	log.info("inside broadcast");
-                if (session.isOpen()) {
-                	log.info("before send message");
-                    session.sendMessage(message);
-                    log.info("after send message");
-                }
-            }
-            log.info("Broadcasted payment amount: {}", amount);
+            kioskMessage = new TextMessage(objectMapper.writeValueAsString(status));
+            ownerMessage = new TextMessage(objectMapper.writeValueAsString(update));
         } catch (IOException e) {
-            log.error("Error broadcasting payment amount: {}", e.getMessage(), e);
+            log.error("Could not serialize update for shop {}: {}", shopId, e.getMessage(), e);
+            return;
+        }
+        int sent = 0;
+        for (Subscriber subscriber : topic) {
+            if (send(subscriber, subscriber.owner ? ownerMessage : kioskMessage)) {
+                sent++;
+            }
         }
+        log.debug("Pushed {} update to {} of {} sessions of shop {}", update.get("type"), sent, topic.size(), shopId);
+    }
+
+    private void subscribe(Subscriber subscriber, Integer shopId, boolean owner) {
+        synchronized (subscriber) {
+            if (subscriber.shopId != null) {
+                unindex(subscriber);
+            }
+            subscriber.shopId = shopId;
+            subscriber.owner = owner;
+            if (shopId != null) {
+                // Add inside compute so it cannot race with unindex dropping the emptied set
+                subscribers.compute(shopId, (id, topic) -> {
+                    Set<Subscriber> members = topic != null ? topic : ConcurrentHashMap.newKeySet();
+                    members.add(subscriber);
+                    return members;
+                });
+            }
+        }
+    }
+
+    private void remove(String sessionId) {
+        Subscriber subscriber = sessions.remove(sessionId);
+        if (subscriber != null) {
+            subscribe(subscriber, null, false);
+        }
+    }
+
+    private void unindex(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.shopId, (id, topic) -> {
+            topic.remove(subscriber);
+            return topic.isEmpty() ? null : topic;
+        });
     }
-}
 
+    private void reply(Subscriber subscriber, Map<String, Object> payload) throws IOException {
+        send(subscriber, new TextMessage(objectMapper.writeValueAsString(payload)));
+    }
+
+    private boolean send(Subscriber subscriber, TextMessage message) {
+        if (!subscriber.session.isOpen()) {
+            remove(subscriber.session.getId());
+            return false;
+        }
+        try {
+            subscriber.session.sendMessage(message);
+            return true;
+        } catch (Exception e) {
+            // Send time limit exceeded or a broken connection; the client reconnects and resubscribes
+            log.warn("Dropping WebSocket session {}: {}", subscriber.session.getId(), e.getMessage());
+            remove(subscriber.session.getId());
+            try {
+                subscriber.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException closeError) {
+                // Already gone
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.pdf.printer.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread factories for the app's own pools that switch to virtual threads when
+ * {@code spring.threads.virtual.enabled=true} and the JVM supports them (Java 21+).
+ * <p>
+ * The code base still compiles for Java 17, so the virtual thread builder is looked up reflectively.
+ * On an older JVM, or with the property off, named platform daemon threads are used as before.
+ */
+public final class VirtualThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    public static ThreadFactory factory(String namePrefix, boolean virtualThreadsEnabled) {
+        if (virtualThreadsEnabled) {
+            ThreadFactory virtual = virtualFactory(namePrefix);
+            if (virtual != null) {
+                return virtual;
+            }
+            log.warn("spring.threads.virtual.enabled is set but this JVM ({}) has no virtual threads. Using platform threads for '{}'.",
+                    System.getProperty("java.version"), namePrefix);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualFactory(String namePrefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 1).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.pdf.printer.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -9,23 +15,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import com.pdf.printer.dto.PaymentPage;
+import jakarta.servlet.http.HttpServletResponse;
 import com.pdf.printer.service.PaymentDetail;
 import com.pdf.printer.service.PaymentService;
+import com.pdf.printer.service.ShopRegistry;
 
 @Controller
 public class CustomerDashboardController {
     
     private static final Logger log = LoggerFactory.getLogger(CustomerDashboardController.class);
     
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private ShopRegistry shopRegistry;
+
     @PostMapping("/fetchDetails")
     public ResponseEntity<?> getPaymentDetails(
             @RequestParam String phoneNumber,
@@ -56,7 +74,7 @@ public class CustomerDashboardController {
             Map<String, Object> response = new HashMap<>();
             response.put("payments", payments);
             response.put("totalPayment", totalPayment);
-            response.put("name", Printer.getNameByPhone(phoneNumber));
+            response.put("name", shopRegistry.getNameByPhone(phoneNumber));
             response.put("phone", phoneNumber);
             response.put("filterType", filterType);
             response.put("startDate", startDate);
@@ -73,6 +91,81 @@ public class CustomerDashboardController {
         }
     }
 
+    /**
+     * One page of a shop's payments for the dashboard filter, newest first. Pass the returned
+     * {@code nextCursor} back as {@code cursor} for the next page; it is null on the last one. The
+     * first page also carries the shop, the total amount and the number of payments in the range.
+     */
+    @GetMapping("/fetchPayments")
+    public ResponseEntity<?> getPaymentPage(
+            @RequestParam String phoneNumber,
+            @RequestParam String filterType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        try {
+            validateRequest(phoneNumber, filterType, startDate, endDate);
+            PaymentService.DateRange range = paymentService.dateRange(filterType, startDate, endDate);
+            PaymentPage page = paymentService.getPaymentPage(phoneNumber, range, cursor,
+                    Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("payments", page.payments());
+            response.put("nextCursor", page.nextCursor());
+            if (cursor == null || cursor.isBlank()) {
+                response.put("totalPayment", paymentService.getTotal(phoneNumber, range));
+                response.put("paymentCount", paymentService.getPaymentCount(phoneNumber, range));
+                response.put("name", shopRegistry.getNameByPhone(phoneNumber));
+                response.put("phone", phoneNumber);
+                response.put("filterType", filterType);
+                response.put("startDate", startDate);
+                response.put("endDate", endDate);
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.error("Validation error: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Server error: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error retrieving payments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The filter's payments as a CSV download, written to the response while they are read from
+     * the database, so a multi-year export needs no more memory than a single day.
+     */
+    @GetMapping("/exportPayments")
+    public void exportPayments(
+            @RequestParam String phoneNumber,
+            @RequestParam String filterType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            HttpServletResponse response) throws IOException {
+
+        try {
+            validateRequest(phoneNumber, filterType, startDate, endDate);
+        } catch (IllegalArgumentException e) {
+            log.error("Validation error: {}", e.getMessage());
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        PaymentService.DateRange range = paymentService.dateRange(filterType, startDate, endDate);
+        String fileName = "payments-" + phoneNumber + "-" + range.from() + "-to-" + range.toExclusive().minusDays(1) + ".csv";
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+
+        long started = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        long rows = paymentService.writePaymentsCsv(phoneNumber, range, writer);
+        log.info("Exported {} payments of {} ({} to {}) in {} ms", rows, phoneNumber, range.from(),
+                range.toExclusive(), System.currentTimeMillis() - started);
+    }
+
     private void validateRequest(String phoneNumber, String filterType, 
                                 LocalDate startDate, LocalDate endDate) {
         if (!phoneNumber.matches("\\d{10}")) {
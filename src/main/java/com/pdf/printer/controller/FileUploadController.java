@@ -1,39 +1,69 @@
 package com.pdf.printer.controller;
 
-import com.pdf.printer.dto.FileInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdf.printer.dto.BatchUploadItem;
+import com.pdf.printer.dto.StoredUpload;
+import com.pdf.printer.service.ChunkedUpload;
+import com.pdf.printer.service.ChunkedUploadService;
+import com.pdf.printer.service.ConversionJob;
+import com.pdf.printer.service.ConversionJobService;
 import com.pdf.printer.service.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.beans.factory.annotation.Value; // Import Value
 
+import jakarta.servlet.http.HttpServletRequest;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Controller
 @RequestMapping("/print")
 public class FileUploadController implements WebMvcConfigurer { // Implement WebMvcConfigurer
 
     private static final Logger log = LoggerFactory.getLogger(FileUploadController.class);
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+    private static final long BATCH_TIMEOUT_MS = 10 * 60 * 1000L;
+
+    private final ObjectMapper batchMapper = new ObjectMapper();
 
     private final FileStorageService fileStorageService;
+    private final ConversionJobService conversionJobService;
+    private final ChunkedUploadService chunkedUploadService;
 
     @Value("${file.upload-dir}") // Inject uploadDir here as well for resource handler
     private String uploadDir;
 
 
     @Autowired
-    public FileUploadController(FileStorageService fileStorageService) {
+    public FileUploadController(FileStorageService fileStorageService, ConversionJobService conversionJobService,
+                                ChunkedUploadService chunkedUploadService) {
         this.fileStorageService = fileStorageService;
+        this.conversionJobService = conversionJobService;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
 	/*
@@ -65,25 +95,11 @@ public class FileUploadController implements WebMvcConfigurer { // Implement Web
                  uniqueId, originalFilename, file.getSize(), file.getContentType(), pageRangeType, startPage, endPage);
 
         try {
-            FileInfo processedFileInfo = fileStorageService.storeFile(file, pageRangeType, startPage, endPage);
-            log.info("File processing complete for uniqueId '{}'. Result: {}", uniqueId, processedFileInfo);
-
-            response.put("originalFileName", processedFileInfo.getOriginalFileName());
-            response.put("url", processedFileInfo.getUrl());
-            response.put("c_url", processedFileInfo.getC_url());
-            response.put("fileName", processedFileInfo.getC_fileName());
-            response.put("bwFileName", processedFileInfo.getB_fileName());
-            response.put("pageCount", processedFileInfo.getPageCount());
-            response.put("mimeType", processedFileInfo.getMimeType()); // Pass mimeType back
-            response.put("status", "processed");
+            // Only the color original is written on the request thread; page counting, custom range
+            // extraction and B&W conversion run on the conversion pool and are reported via the job.
+            StoredUpload storedUpload = fileStorageService.storeOriginal(file);
+            return queueConversion(storedUpload, uniqueId, pageRangeType, startPage, endPage, response);
 
-            return ResponseEntity.ok(response);
-
-        } catch (IllegalArgumentException e) {
-            log.error("Invalid arguments during file processing for uniqueId '{}', File '{}': {}", uniqueId, originalFilename, e.getMessage());
-            response.put("error", e.getMessage());
-            response.put("status", "error");
-            return ResponseEntity.badRequest().body(response);
         } catch (IOException e) {
             log.error("File processing failed for uniqueId '{}', File '{}': {}", uniqueId, originalFilename, e.getMessage(), e);
             response.put("error", "File processing failed: " + e.getMessage());
@@ -97,6 +113,240 @@ public class FileUploadController implements WebMvcConfigurer { // Implement Web
         }
     }
 
+    /**
+     * Accepts several files in one request and streams one NDJSON line per file as its conversion
+     * finishes (in completion order, not upload order). The files are stored on this thread and each
+     * is handed to the conversion pool right away, so they convert in parallel while later files are
+     * still being stored. {@code items} is a JSON array of {@link BatchUploadItem} matching the files.
+     */
+    @PostMapping(value = "/upload/batch", produces = NDJSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ResponseBodyEmitter> uploadBatch(@RequestParam("files") MultipartFile[] files,
+                                                           @RequestParam("items") String itemsJson) {
+        List<BatchUploadItem> items;
+        try {
+            items = batchMapper.readValue(itemsJson, new TypeReference<List<BatchUploadItem>>() { });
+        } catch (JsonProcessingException e) {
+            log.warn("Batch upload rejected: unreadable items JSON: {}", e.getOriginalMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (items.size() != files.length) {
+            log.warn("Batch upload rejected: {} files but {} item descriptions", files.length, items.size());
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Received batch upload of {} files", files.length);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(BATCH_TIMEOUT_MS);
+        AtomicInteger remaining = new AtomicInteger(files.length);
+        for (int i = 0; i < files.length; i++) {
+            MultipartFile file = files[i];
+            BatchUploadItem item = items.get(i);
+            Map<String, Object> failure = new HashMap<>();
+            failure.put("uniqueId", item.getUniqueId());
+            failure.put("originalFileName", file.getOriginalFilename());
+            failure.put("status", "error");
+            if (file.isEmpty()) {
+                failure.put("error", "File is empty.");
+                sendBatchLine(emitter, failure, remaining);
+                continue;
+            }
+            StoredUpload storedUpload = null;
+            try {
+                storedUpload = fileStorageService.storeOriginal(file);
+                ConversionJob job = conversionJobService.submit(storedUpload, item.getUniqueId(),
+                        item.getPageRangeType() == null ? "all" : item.getPageRangeType(), item.getStartPage(), item.getEndPage());
+                job.getCompletion().thenAccept(done -> {
+                    Map<String, Object> line = done.toResponse();
+                    line.put("busy", done.isBusy());
+                    sendBatchLine(emitter, line, remaining);
+                });
+            } catch (RejectedExecutionException e) {
+                fileStorageService.discardOriginal(storedUpload);
+                failure.put("busy", true);
+                failure.put("error", "The server is busy processing other files. Please retry in a few seconds.");
+                sendBatchLine(emitter, failure, remaining);
+            } catch (IOException e) {
+                log.error("Batch upload: storing '{}' failed: {}", file.getOriginalFilename(), e.getMessage(), e);
+                failure.put("error", "File processing failed: " + e.getMessage());
+                sendBatchLine(emitter, failure, remaining);
+            } catch (RuntimeException e) {
+                // Every file must get its line, or the stream would never complete
+                log.error("Batch upload: unexpected error for '{}'", file.getOriginalFilename(), e);
+                if (storedUpload != null) {
+                    fileStorageService.discardOriginal(storedUpload);
+                }
+                failure.put("error", "An unexpected server error occurred during processing.");
+                sendBatchLine(emitter, failure, remaining);
+            }
+        }
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    private void sendBatchLine(ResponseBodyEmitter emitter, Map<String, Object> line, AtomicInteger remaining) {
+        // Lines come from several worker threads; one send per line keeps them whole
+        synchronized (emitter) {
+            try {
+                emitter.send(batchMapper.writeValueAsString(line) + "\n", MediaType.TEXT_PLAIN);
+                if (remaining.decrementAndGet() == 0) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Batch upload client went away: {}", e.getMessage());
+                remaining.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Submits the conversion job for a stored original and answers 202 with the job's status URLs,
+     * or 429 when the conversion queue is full.
+     */
+    private ResponseEntity<Map<String, Object>> queueConversion(StoredUpload storedUpload, String uniqueId, String pageRangeType,
+                                                                Integer startPage, Integer endPage, Map<String, Object> response) {
+        ConversionJob job;
+        try {
+            job = conversionJobService.submit(storedUpload, uniqueId, pageRangeType, startPage, endPage);
+        } catch (RejectedExecutionException e) {
+            fileStorageService.discardOriginal(storedUpload);
+            response.put("error", "The server is busy processing other files. Please retry in a few seconds.");
+            response.put("status", "error");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+        }
+        log.info("File stored for uniqueId '{}'. Conversion job {} queued.", uniqueId, job.getJobId());
+
+        response.putAll(job.toResponse());
+        response.put("statusUrl", "/print/upload/jobs/" + job.getJobId());
+        response.put("eventsUrl", "/print/upload/jobs/" + job.getJobId() + "/events");
+
+        return ResponseEntity.accepted().body(response);
+    }
+
+    // --- Chunked, resumable uploads ---
+    // POST /upload/chunked declares the file, PUT /upload/chunked/{id}?offset=N sends raw bytes
+    // (application/octet-stream, no multipart buffering), GET reports where to resume, and
+    // POST /upload/chunked/{id}/complete queues the same conversion job as /upload.
+
+    @PostMapping("/upload/chunked")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> initChunkedUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam("totalSize") long totalSize,
+            @RequestParam(value = "mimeType", required = false) String mimeType) {
+        try {
+            ChunkedUpload upload = chunkedUploadService.init(fileName, mimeType, totalSize);
+            Map<String, Object> response = upload.toResponse();
+            response.put("chunkSize", chunkedUploadService.getChunkSizeBytes());
+            response.put("uploadUrl", "/print/upload/chunked/" + upload.getUploadId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            return chunkedError(HttpStatus.BAD_REQUEST, null, e.getMessage());
+        } catch (IOException e) {
+            log.error("Could not start chunked upload for '{}' ({} bytes)", fileName, totalSize, e);
+            return chunkedError(HttpStatus.INTERNAL_SERVER_ERROR, null, "Could not start upload: " + e.getMessage());
+        }
+    }
+
+    @PutMapping(value = "/upload/chunked/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> putChunk(@PathVariable("uploadId") String uploadId,
+                                                        @RequestParam("offset") long offset,
+                                                        HttpServletRequest request) {
+        Optional<ChunkedUpload> upload = chunkedUploadService.get(uploadId);
+        if (upload.isEmpty()) {
+            return chunkedError(HttpStatus.NOT_FOUND, uploadId, "Unknown or expired upload id.");
+        }
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(upload.get(), offset, body).toResponse());
+        } catch (IllegalArgumentException e) {
+            return chunkedError(HttpStatus.BAD_REQUEST, uploadId, e.getMessage());
+        } catch (IllegalStateException e) {
+            return chunkedError(HttpStatus.CONFLICT, uploadId, e.getMessage());
+        } catch (IOException e) {
+            // Usually the client went away mid-chunk; whatever arrived is kept for the resume
+            log.warn("Chunk upload {} at offset {} failed: {}", uploadId, offset, e.getMessage());
+            return chunkedError(HttpStatus.INTERNAL_SERVER_ERROR, uploadId, "Chunk write failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/upload/chunked/{uploadId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        return chunkedUploadService.get(uploadId)
+                .map(upload -> ResponseEntity.ok(upload.toResponse()))
+                .orElseGet(() -> chunkedError(HttpStatus.NOT_FOUND, uploadId, "Unknown or expired upload id."));
+    }
+
+    @PostMapping("/upload/chunked/{uploadId}/complete")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> completeChunkedUpload(
+            @PathVariable("uploadId") String uploadId,
+            @RequestParam("uniqueId") String uniqueId,
+            @RequestParam(value = "pageRangeType", defaultValue = "all") String pageRangeType,
+            @RequestParam(value = "startPage", required = false) Integer startPage,
+            @RequestParam(value = "endPage", required = false) Integer endPage,
+            @RequestParam(value = "sha256", required = false) String sha256) {
+        Optional<ChunkedUpload> upload = chunkedUploadService.get(uploadId);
+        if (upload.isEmpty()) {
+            return chunkedError(HttpStatus.NOT_FOUND, uploadId, "Unknown or expired upload id.");
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("uniqueId", uniqueId);
+        try {
+            StoredUpload storedUpload = chunkedUploadService.complete(upload.get(), sha256);
+            return queueConversion(storedUpload, uniqueId, pageRangeType, startPage, endPage, response);
+        } catch (IllegalStateException e) {
+            return chunkedError(HttpStatus.CONFLICT, uploadId, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return chunkedError(HttpStatus.BAD_REQUEST, uploadId, e.getMessage());
+        } catch (IOException e) {
+            log.error("Completing chunked upload {} failed for uniqueId '{}'", uploadId, uniqueId, e);
+            return chunkedError(HttpStatus.INTERNAL_SERVER_ERROR, uploadId, "File processing failed: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/upload/chunked/{uploadId}")
+    @ResponseBody
+    public ResponseEntity<Void> abortChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        chunkedUploadService.get(uploadId).ifPresent(chunkedUploadService::abort);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<Map<String, Object>> chunkedError(HttpStatus status, String uploadId, String message) {
+        Map<String, Object> response = new HashMap<>();
+        if (uploadId != null) {
+            response.put("uploadId", uploadId);
+        }
+        response.put("status", "error");
+        response.put("error", message);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    @GetMapping("/upload/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getConversionJob(@PathVariable("jobId") String jobId) {
+        return conversionJobService.getJob(jobId)
+                .map(job -> job.isBusy()
+                        ? ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "5").body(job.toResponse())
+                        : ResponseEntity.ok(job.toResponse()))
+                .orElseGet(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("jobId", jobId);
+                    response.put("status", "error");
+                    response.put("error", "Unknown or expired job id.");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                });
+    }
+
+    @GetMapping(value = "/upload/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> streamConversionJob(@PathVariable("jobId") String jobId) {
+        return conversionJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(conversionJobService.subscribe(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
      // --- Resource Handler for serving uploaded files ---
      // This is crucial for the preview URLs (/uploads/...) to work
      @Override
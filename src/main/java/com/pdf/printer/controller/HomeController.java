@@ -2,16 +2,26 @@ package com.pdf.printer.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.pdf.printer.service.ShopRegistry;
 
 @Controller
 public class HomeController {
 
 	private static final Logger log = LoggerFactory.getLogger(HomeController.class);
 
+	private final ShopRegistry shopRegistry;
+
+	public HomeController(ShopRegistry shopRegistry) {
+		this.shopRegistry = shopRegistry;
+	}
+
 	@GetMapping("/")
 	public String homePage() {
 		return "home";
@@ -24,18 +34,12 @@ public class HomeController {
 		if(id==null)
 			return "please scan the QR code or visit the website";
         
-        String printerId=String.valueOf(id);
-        Printer.PrinterDetails details = Printer.getDetailsById(printerId);
+        ShopRegistry.ShopInfo shop = shopRegistry.get(String.valueOf(id))
+                .filter(ShopRegistry.ShopInfo::active)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown printer " + id));
         model.addAttribute("id", id);
-        model.addAttribute("name", details.getName());
-		model.addAttribute("range1", details.getRange1());
-		model.addAttribute("range2", details.getRange2());
-		model.addAttribute("b_cost_range1", details.getB_cost_range1());
-		model.addAttribute("b_cost_range2", details.getB_cost_range2());
-		model.addAttribute("b_cost_range3", details.getB_cost_range3());
-		model.addAttribute("c_cost_range1", details.getC_cost_range1());
-		model.addAttribute("c_cost_range2", details.getC_cost_range2());
-		model.addAttribute("c_cost_range3", details.getC_cost_range3());
+        model.addAttribute("name", shop.name());
+		// Prices are quoted by /print/api/quote, so the page no longer needs the tier values
 		
         log.info("model"+model.toString());
         return "index"; 
@@ -0,0 +1,77 @@
+package com.pdf.printer.controller;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pdf.printer.dto.ShopRequest;
+import com.pdf.printer.service.ShopRegistry;
+
+/**
+ * Admin API for the shop registry (HTTP basic, see SecurityConfig). Changes take effect on this
+ * instance immediately and on other instances at their next change check.
+ */
+@RestController
+@RequestMapping("/admin/shops")
+public class ShopAdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopAdminController.class);
+
+    private final ShopRegistry shopRegistry;
+
+    public ShopAdminController(ShopRegistry shopRegistry) {
+        this.shopRegistry = shopRegistry;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> list() {
+        ShopRegistry.Snapshot snapshot = shopRegistry.snapshot();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("version", snapshot.version());
+        response.put("shops", snapshot.shops().stream().sorted(Comparator.comparingInt(ShopRegistry.ShopInfo::id)).toList());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable("id") int id) {
+        return shopRegistry.get(id).<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown shop " + id)));
+    }
+
+    /**
+     * Creates or replaces a shop. Set {@code active} to false to take a kiosk offline; shops are
+     * never deleted, so their payment history keeps its name.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<?> save(@PathVariable("id") int id, @RequestBody ShopRequest request) {
+        try {
+            ShopRegistry.ShopInfo saved = shopRegistry.save(id, request);
+            return ResponseEntity.ok(Map.of("version", shopRegistry.snapshot().version(), "shop", saved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Concurrent update of shop {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Shop " + id + " was changed concurrently; retry."));
+        }
+    }
+
+    /** Reloads the registry from the database, e.g. after editing the table directly. */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        ShopRegistry.Snapshot snapshot = shopRegistry.reload();
+        return ResponseEntity.ok(Map.of("version", snapshot.version(), "shops", snapshot.shops().size()));
+    }
+}
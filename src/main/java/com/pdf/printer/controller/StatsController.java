@@ -0,0 +1,45 @@
+package com.pdf.printer.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pdf.printer.service.ConversionJobService;
+import com.pdf.printer.service.ConverterPool;
+import com.pdf.printer.service.DashboardCache;
+
+/**
+ * Lightweight operational metrics (queue depths, wait times) as JSON.
+ */
+@RestController
+@RequestMapping("/print/api/stats")
+public class StatsController {
+
+    private final ConversionJobService conversionJobService;
+    private final ConverterPool converterPool;
+    private final DashboardCache dashboardCache;
+
+    public StatsController(ConversionJobService conversionJobService, ConverterPool converterPool,
+                           DashboardCache dashboardCache) {
+        this.conversionJobService = conversionJobService;
+        this.converterPool = converterPool;
+        this.dashboardCache = dashboardCache;
+    }
+
+    @GetMapping("/conversion")
+    public ResponseEntity<Map<String, Object>> conversionStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jobs", conversionJobService.snapshot());
+        response.put("converters", converterPool.snapshot());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/dashboard-cache")
+    public ResponseEntity<Map<String, Object>> dashboardCacheStats() {
+        return ResponseEntity.ok(dashboardCache.snapshot());
+    }
+}
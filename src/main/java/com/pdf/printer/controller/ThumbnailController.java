@@ -0,0 +1,64 @@
+package com.pdf.printer.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pdf.printer.service.ThumbnailService;
+
+/**
+ * Serves page thumbnails of uploaded files. Blob names are content hashes, so responses are
+ * immutable and cached by the browser for a year.
+ */
+@RestController
+@RequestMapping("/print/thumbnails")
+public class ThumbnailController {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailController.class);
+
+    private final ThumbnailService thumbnailService;
+
+    public ThumbnailController(ThumbnailService thumbnailService) {
+        this.thumbnailService = thumbnailService;
+    }
+
+    @GetMapping("/{fileName}/{page}")
+    public ResponseEntity<Resource> thumbnail(@PathVariable("fileName") String fileName,
+                                              @PathVariable("page") int page,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = thumbnailService.etag(fileName, page);
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        try {
+            Path thumbnail = thumbnailService.thumbnail(fileName, page);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .body(new FileSystemResource(thumbnail));
+        } catch (IllegalArgumentException e) {
+            log.debug("Thumbnail not available: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            log.error("Could not render thumbnail for {} page {}", fileName, page, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pdf.printer.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Per-file options of a batch upload, sent as a JSON array in the same order as the files.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadItem {
+    private String uniqueId; // Frontend temporary ID, echoed back on the file's result line
+    private String pageRangeType = "all";
+    private Integer startPage;
+    private Integer endPage;
+}
@@ -1,5 +1,7 @@
 package com.pdf.printer.dto;
 
+import java.util.List;
+
 public class FileInfo {
     private String b_fileName; // B&W filename (potentially custom)
     private String c_fileName; // Color filename (potentially custom)
@@ -8,6 +10,8 @@ public class FileInfo {
     private int pageCount;     // Final page count (original or custom)
     private String originalFileName; // Added for display/reference
     private String mimeType; // Added to store original mime type
+    private List<String> thumbnailUrls = List.of();   // Preview images of the first pages (color file)
+    private List<String> bwThumbnailUrls = List.of(); // Preview images of the first pages (B&W file)
 
     // Constructor updated
     public FileInfo(String b_fileName, String c_fileName, String url, String c_url, int pageCount, String originalFileName, String mimeType) {
@@ -28,6 +32,11 @@ public class FileInfo {
     public int getPageCount() { return pageCount; }
     public String getOriginalFileName() { return originalFileName; }
     public String getMimeType() { return mimeType; } // Getter for mime type
+    public List<String> getThumbnailUrls() { return thumbnailUrls; }
+    public List<String> getBwThumbnailUrls() { return bwThumbnailUrls; }
+
+    public void setThumbnailUrls(List<String> thumbnailUrls) { this.thumbnailUrls = thumbnailUrls; }
+    public void setBwThumbnailUrls(List<String> bwThumbnailUrls) { this.bwThumbnailUrls = bwThumbnailUrls; }
 
 
     @Override
@@ -15,4 +15,5 @@ public class FileOrderItem {
     private int numberOfCopies;
     private int calculatedPrice; // Price for this item (recalculated on backend)
     private int printerId;
+    private boolean duplex; // Print on both sides (long edge)
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.pdf.printer.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A page of dashboard payments, newest first. {@code nextCursor} is null on the last page.
+ */
+public record PaymentPage(List<PaymentRow> payments, String nextCursor) {
+
+    /**
+     * Position after the last row of a page: its (payment_date, id). Sent to the client as an
+     * opaque URL-safe token.
+     */
+    public record Cursor(LocalDate paymentDate, long id) {
+
+        public static Cursor after(PaymentRow row) {
+            return new Cursor(row.paymentDate(), row.id());
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((paymentDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                return new Cursor(LocalDate.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
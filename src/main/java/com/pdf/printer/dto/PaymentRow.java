@@ -0,0 +1,12 @@
+package com.pdf.printer.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One line of the shop dashboard's payment table: only the displayed columns, plus the id that
+ * breaks ties between payments on the same date when paging.
+ */
+public record PaymentRow(Long id, LocalDate paymentDate, LocalTime paymentTime, String paymentId, BigDecimal amount) {
+}
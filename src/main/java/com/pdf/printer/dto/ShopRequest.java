@@ -0,0 +1,23 @@
+package com.pdf.printer.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ShopRequest {
+    private String name;
+    private String email;
+    private String ippUri; // Optional; see Shop
+    private String phone;
+    private int range1;
+    private int range2;
+    private int range3;
+    private int bwCostRange1;
+    private int bwCostRange2;
+    private int bwCostRange3;
+    private int colorCostRange1;
+    private int colorCostRange2;
+    private int colorCostRange3;
+    private boolean active = true;
+}
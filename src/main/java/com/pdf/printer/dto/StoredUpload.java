@@ -0,0 +1,58 @@
+package com.pdf.printer.dto;
+
+import java.nio.file.Path;
+
+/**
+ * The color original of an upload as persisted on disk, before any page range
+ * or B&W processing has been applied.
+ */
+public class StoredUpload {
+    private final String contentHash;       // SHA-256 of the original; all derived blobs are named after it
+    private final String storedFileName;    // File name of the original in the upload directory
+    private final Path storedPath;          // Absolute path of the original
+    private final String originalFileName;  // Name as sent by the client
+    private final String baseName;          // Sanitized name without extension
+    private final String extension;         // Lower-case extension including the dot (may be empty)
+    private final String mimeType;
+    private final boolean pdf;
+    private final boolean image;
+    private final Integer headerPageCount;  // Page count from a linearized PDF's header, null if unknown
+
+    public StoredUpload(String contentHash, String storedFileName, Path storedPath, String originalFileName,
+                        String baseName, String extension, String mimeType, boolean pdf, boolean image, Integer headerPageCount) {
+        this.contentHash = contentHash;
+        this.storedFileName = storedFileName;
+        this.storedPath = storedPath;
+        this.originalFileName = originalFileName;
+        this.baseName = baseName;
+        this.extension = extension;
+        this.mimeType = mimeType;
+        this.pdf = pdf;
+        this.image = image;
+        this.headerPageCount = headerPageCount;
+    }
+
+    public String getContentHash() { return contentHash; }
+    public String getStoredFileName() { return storedFileName; }
+    public Path getStoredPath() { return storedPath; }
+    public String getOriginalFileName() { return originalFileName; }
+    public String getBaseName() { return baseName; }
+    public String getExtension() { return extension; }
+    public String getMimeType() { return mimeType; }
+    public boolean isPdf() { return pdf; }
+    public boolean isImage() { return image; }
+    public Integer getHeaderPageCount() { return headerPageCount; }
+
+    @Override
+    public String toString() {
+        return "StoredUpload{" +
+               "contentHash='" + contentHash + '\'' +
+               ", storedFileName='" + storedFileName + '\'' +
+               ", originalFileName='" + originalFileName + '\'' +
+               ", mimeType='" + mimeType + '\'' +
+               ", pdf=" + pdf +
+               ", image=" + image +
+               ", headerPageCount=" + headerPageCount +
+               '}';
+    }
+}
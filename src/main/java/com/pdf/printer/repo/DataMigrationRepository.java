@@ -0,0 +1,18 @@
+package com.pdf.printer.repo;
+
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.DataMigration;
+
+@Repository
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+
+    // IGNORE, so an instance starting at the same time finishing first is not an error
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO data_migrations (name, completed_at) VALUES (?1, ?2)", nativeQuery = true)
+    int markCompleted(String name, LocalDateTime completedAt);
+}
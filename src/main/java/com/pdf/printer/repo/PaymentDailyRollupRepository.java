@@ -0,0 +1,34 @@
+package com.pdf.printer.repo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.PaymentDailyRollup;
+
+@Repository
+public interface PaymentDailyRollupRepository extends JpaRepository<PaymentDailyRollup, PaymentDailyRollup.Key> {
+
+    // One statement, so concurrent payments for the same shop and day cannot lose an update
+    @Modifying
+    @Query(value = "INSERT INTO payment_daily_rollup (phone_number, rollup_date, payment_count, total_amount) VALUES (?1, ?2, 1, ?3) "
+            + "ON DUPLICATE KEY UPDATE payment_count = payment_count + 1, total_amount = total_amount + ?3", nativeQuery = true)
+    int addPayment(String phoneNumber, LocalDate date, BigDecimal amount);
+
+    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM PaymentDailyRollup r WHERE r.phoneNumber = ?1 AND r.rollupDate >= ?2 AND r.rollupDate < ?3")
+    Long findTotalByPhoneNumberAndDateRange(String phoneNumber, LocalDate from, LocalDate toExclusive);
+
+    @Query("SELECT COALESCE(SUM(r.paymentCount), 0) FROM PaymentDailyRollup r WHERE r.phoneNumber = ?1 AND r.rollupDate >= ?2 AND r.rollupDate < ?3")
+    Long findCountByPhoneNumberAndDateRange(String phoneNumber, LocalDate from, LocalDate toExclusive);
+
+    // Recomputes every shop-day from the payments, overwriting what is there, so running it again (or
+    // alongside live payments, whose inserts wait on the rows this reads) leaves the rollup correct
+    @Modifying
+    @Query(value = "INSERT INTO payment_daily_rollup (phone_number, rollup_date, payment_count, total_amount) "
+            + "SELECT phone_number, payment_date, COUNT(*), SUM(amount) FROM payment_details GROUP BY phone_number, payment_date "
+            + "ON DUPLICATE KEY UPDATE payment_count = VALUES(payment_count), total_amount = VALUES(total_amount)", nativeQuery = true)
+    int backfillFromPayments();
+}
@@ -3,34 +3,49 @@ package com.pdf.printer.repo;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.pdf.printer.dto.PaymentRow;
+import jakarta.persistence.QueryHint;
 import com.pdf.printer.service.PaymentDetail;
 
 @Repository
 public interface PaymentDetailRepository extends JpaRepository<PaymentDetail, Long> {
     Optional<PaymentDetail> findByPaymentId(String paymentId);
 
-    // Current Month
-    @Query("SELECT p FROM PaymentDetail p WHERE MONTH(p.paymentDate) = MONTH(CURRENT_DATE) AND YEAR(p.paymentDate) = YEAR(CURRENT_DATE) AND p.phoneNumber = ?1  ORDER BY p.paymentDate DESC")
-    List<PaymentDetail> findByPhoneNumberCurrentMonth(String phoneNumber);
-
-    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM PaymentDetail p WHERE MONTH(p.paymentDate) = MONTH(CURRENT_DATE)  AND YEAR(p.paymentDate) = YEAR(CURRENT_DATE)  AND p.phoneNumber = ?1")
-    Long findMonthlyTotal(String phoneNumber);
-
-    // Today
-    @Query("SELECT p FROM PaymentDetail p WHERE p.paymentDate = CURRENT_DATE AND p.phoneNumber = ?1 ORDER BY p.paymentDate DESC")
-    List<PaymentDetail> findTodayPayments(String phoneNumber);
-
-    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM PaymentDetail p WHERE p.paymentDate = CURRENT_DATE  AND p.phoneNumber = ?1")         
-    Long findTodayTotal(String phoneNumber);
-
-    // Custom Date Range
-    @Query("SELECT p FROM PaymentDetail p WHERE p.phoneNumber = ?1 AND p.paymentDate BETWEEN ?2 AND ?3 ORDER BY p.paymentDate DESC")     
-    List<PaymentDetail> findByDateRange(String phoneNumber, LocalDate startDate, LocalDate endDate);
-
-    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM PaymentDetail p  WHERE p.phoneNumber = ?1 AND p.paymentDate BETWEEN ?2 AND ?3")
-    Long findTotalByDateRange(String phoneNumber, LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+    // Half-open date ranges [from, to) on payment_date, so the (phone_number, payment_date) index
+    // serves both the filter and the ORDER BY. Callers compute the bounds (day, month, custom range);
+    // totals come from payment_daily_rollup.
+    @Query("SELECT p FROM PaymentDetail p WHERE p.phoneNumber = ?1 AND p.paymentDate >= ?2 AND p.paymentDate < ?3 ORDER BY p.paymentDate DESC")
+    List<PaymentDetail> findByPhoneNumberAndDateRange(String phoneNumber, LocalDate from, LocalDate toExclusive);
+
+    // Keyset pages, newest first. InnoDB appends the primary key to secondary indexes, so
+    // (phone_number, payment_date) is effectively (phone_number, payment_date, id): each page is a
+    // range scan that starts right after the previous page's last (payment_date, id), however deep it is.
+    @Query("SELECT new com.pdf.printer.dto.PaymentRow(p.id, p.paymentDate, p.paymentTime, p.paymentId, p.amount) FROM PaymentDetail p"
+            + " WHERE p.phoneNumber = ?1 AND p.paymentDate >= ?2 AND p.paymentDate < ?3"
+            + " ORDER BY p.paymentDate DESC, p.id DESC")
+    List<PaymentRow> findFirstPage(String phoneNumber, LocalDate from, LocalDate toExclusive, Pageable page);
+
+    @Query("SELECT new com.pdf.printer.dto.PaymentRow(p.id, p.paymentDate, p.paymentTime, p.paymentId, p.amount) FROM PaymentDetail p"
+            + " WHERE p.phoneNumber = ?1 AND p.paymentDate >= ?2 AND p.paymentDate < ?3"
+            + " AND (p.paymentDate < ?4 OR (p.paymentDate = ?4 AND p.id < ?5))"
+            + " ORDER BY p.paymentDate DESC, p.id DESC")
+    List<PaymentRow> findPageAfter(String phoneNumber, LocalDate from, LocalDate toExclusive,
+                                   LocalDate afterDate, long afterId, Pageable page);
+
+    // Oldest first for exports. MySQL Connector/J streams rows one at a time only with a fetch size of
+    // Integer.MIN_VALUE; any other value buffers the whole result set in the driver.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.pdf.printer.dto.PaymentRow(p.id, p.paymentDate, p.paymentTime, p.paymentId, p.amount) FROM PaymentDetail p"
+            + " WHERE p.phoneNumber = ?1 AND p.paymentDate >= ?2 AND p.paymentDate < ?3"
+            + " ORDER BY p.paymentDate, p.id")
+    Stream<PaymentRow> streamByPhoneNumberAndDateRange(String phoneNumber, LocalDate from, LocalDate toExclusive);
+}
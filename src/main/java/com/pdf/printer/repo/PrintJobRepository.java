@@ -0,0 +1,30 @@
+package com.pdf.printer.repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.PrintJob;
+
+@Repository
+public interface PrintJobRepository extends JpaRepository<PrintJob, Long> {
+
+    Optional<PrintJob> findByOrderReference(String orderReference);
+
+    @Query("SELECT j.id FROM PrintJob j WHERE j.status = ?1 AND j.nextAttemptAt <= ?2 ORDER BY j.nextAttemptAt")
+    List<Long> findDueIds(PrintJob.Status status, LocalDateTime now, Pageable page);
+
+    // Jobs whose files are still needed; items is JSON, so this matches the blob name as a substring
+    @Query("SELECT COUNT(j) FROM PrintJob j WHERE j.status <> com.pdf.printer.service.PrintJob.Status.SENT AND j.items LIKE CONCAT('%', ?1, '%')")
+    long countUnsentNaming(String fileName);
+
+    // Takes a lease on a due job; 0 means another worker got there first
+    @Modifying
+    @Query("UPDATE PrintJob j SET j.nextAttemptAt = ?3, j.attempts = j.attempts + 1 WHERE j.id = ?1 AND j.status = com.pdf.printer.service.PrintJob.Status.PENDING AND j.nextAttemptAt <= ?2")
+    int claim(Long id, LocalDateTime now, LocalDateTime leaseUntil);
+}
@@ -0,0 +1,21 @@
+package com.pdf.printer.repo;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.PrintOrder;
+
+@Repository
+public interface PrintOrderRepository extends JpaRepository<PrintOrder, Long> {
+
+    // Unique index on order_id; items are fetched in the same query
+    @EntityGraph(attributePaths = "items")
+    Optional<PrintOrder> findByOrderId(String orderId);
+
+    @Query("SELECT COUNT(i) FROM PrintOrderItem i WHERE i.fileName = ?1 AND i.order.status = com.pdf.printer.service.PrintOrder.Status.CREATED AND i.order.createdAt >= ?2")
+    long countUnpaidItemsNaming(String fileName, LocalDateTime createdSince);
+}
@@ -0,0 +1,18 @@
+package com.pdf.printer.repo;
+
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.Shop;
+
+@Repository
+public interface ShopRepository extends JpaRepository<Shop, Integer> {
+
+    Optional<Shop> findByPhone(String phone);
+
+    // Grows with every insert and update (shops are deactivated, never deleted)
+    @Query("SELECT COUNT(s) + COALESCE(SUM(s.version), 0) FROM Shop s")
+    long changeStamp();
+}
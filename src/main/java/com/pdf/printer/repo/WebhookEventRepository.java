@@ -0,0 +1,26 @@
+package com.pdf.printer.repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.pdf.printer.service.WebhookEvent;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    Optional<WebhookEvent> findByPaymentId(String paymentId);
+
+    @Query("SELECT e.id FROM WebhookEvent e WHERE e.status = ?1 AND e.nextAttemptAt <= ?2 ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(WebhookEvent.Status status, LocalDateTime now, Pageable page);
+
+    // Takes a lease on a due event; 0 means another dispatcher got there first
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.nextAttemptAt = ?3, e.attempts = e.attempts + 1 WHERE e.id = ?1 AND e.status = com.pdf.printer.service.WebhookEvent.Status.PENDING AND e.nextAttemptAt <= ?2")
+    int claim(Long id, LocalDateTime now, LocalDateTime leaseUntil);
+}
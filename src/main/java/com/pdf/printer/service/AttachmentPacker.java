@@ -0,0 +1,67 @@
+package com.pdf.printer.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Splits attachments into as few emails as possible under a size budget, using first-fit
+ * decreasing: largest first, each into the first email it still fits in. That is never more than
+ * 11/9 of the optimum plus one email, and for a print order (a handful to a few hundred files) it
+ * is instant.
+ * <p>
+ * Sizes are what goes on the wire, i.e. after base64; see {@link #encodedSize(long)}.
+ */
+public final class AttachmentPacker {
+
+    // MIME headers and boundary of one attachment part, with room for a long encoded filename
+    static final long PART_HEADER_BYTES = 512;
+
+    private AttachmentPacker() {
+    }
+
+    /**
+     * Packs {@code items} into bins of at most {@code budget} bytes. An item larger than the budget
+     * on its own gets a bin to itself rather than being dropped. The result is deterministic for the
+     * same sizes and input order, so a retried order splits the same way.
+     */
+    public static <T> List<List<T>> pack(List<T> items, ToLongFunction<T> size, long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive, got " + budget);
+        }
+        List<T> sorted = new ArrayList<>(items);
+        // Stable sort, so equal sizes keep their order
+        sorted.sort(Comparator.comparingLong(size).reversed());
+
+        List<List<T>> bins = new ArrayList<>();
+        List<Long> free = new ArrayList<>();
+        for (T item : sorted) {
+            long itemSize = size.applyAsLong(item);
+            int target = -1;
+            for (int i = 0; i < bins.size(); i++) {
+                if (free.get(i) >= itemSize) {
+                    target = i;
+                    break;
+                }
+            }
+            if (target < 0) {
+                bins.add(new ArrayList<>());
+                free.add(budget);
+                target = bins.size() - 1;
+            }
+            bins.get(target).add(item);
+            free.set(target, free.get(target) - itemSize);
+        }
+        return bins;
+    }
+
+    /**
+     * Bytes an attachment of {@code fileBytes} takes in the message: base64 turns 3 bytes into 4
+     * and adds a CRLF every 76 characters, plus the part's own headers.
+     */
+    public static long encodedSize(long fileBytes) {
+        long base64 = (fileBytes + 2) / 3 * 4;
+        return base64 + (base64 + 75) / 76 * 2 + PART_HEADER_BYTES;
+    }
+}
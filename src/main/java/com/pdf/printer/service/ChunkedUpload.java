@@ -0,0 +1,212 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * One resumable upload: a preallocated part file, the byte ranges received so far and a SHA-256
+ * that advances over the contiguous prefix as chunks arrive, so completing the upload does not
+ * have to read the file again. Chunks may be written concurrently; bookkeeping is synchronized.
+ * <p>
+ * Hashed bytes must never change afterwards, or the file would be stored under the hash of
+ * content it no longer has (and deduplicated against the genuine file). So a write may not start
+ * below the hashed prefix, and the digest never advances past the start of a write in flight.
+ */
+public class ChunkedUpload {
+
+    private static final int DIGEST_BUFFER = 256 * 1024;
+
+    private final String uploadId;
+    private final String originalFileName;
+    private final String mimeType;
+    private final long totalSize;
+    private final Path partFile;
+    private final boolean pdf;
+    private final FileChannel channel;
+    private final Instant createdAt = Instant.now();
+
+    private final TreeMap<Long, Long> received = new TreeMap<>(); // start -> end (exclusive), non-overlapping
+    private final MessageDigest digest = ContentStore.newDigest();
+    private long hashedUpTo;
+    private long receivedBytes;
+    private Integer headerPageCount;
+    private boolean headerProbed;
+    private final TreeMap<Long, Integer> writesInFlight = new TreeMap<>(); // offset -> number of writes
+    private boolean closed;
+    private volatile Instant lastActivity = createdAt;
+
+    ChunkedUpload(String uploadId, String originalFileName, String mimeType, long totalSize, Path partFile, boolean pdf) throws IOException {
+        this.uploadId = uploadId;
+        this.originalFileName = originalFileName;
+        this.mimeType = mimeType;
+        this.totalSize = totalSize;
+        this.partFile = partFile;
+        this.pdf = pdf;
+        this.channel = FileChannel.open(partFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public String getUploadId() { return uploadId; }
+    public String getOriginalFileName() { return originalFileName; }
+    public String getMimeType() { return mimeType; }
+    public long getTotalSize() { return totalSize; }
+    public Instant getLastActivity() { return lastActivity; }
+    Path getPartFile() { return partFile; }
+    FileChannel getChannel() { return channel; }
+
+    /**
+     * @throws IllegalStateException if the upload is closed or the offset lies in the already hashed prefix
+     */
+    synchronized void beginWrite(long offset) {
+        if (closed) {
+            throw new IllegalStateException("Upload " + uploadId + " is already completed or aborted.");
+        }
+        if (offset < hashedUpTo) {
+            throw new IllegalStateException("Bytes before offset " + hashedUpTo + " of upload " + uploadId
+                    + " were already received and cannot be rewritten; resume from offset " + contiguousEnd() + ".");
+        }
+        writesInFlight.merge(offset, 1, Integer::sum);
+        lastActivity = Instant.now();
+    }
+
+    /**
+     * Records a written range, merges it with its neighbours and hashes any newly contiguous prefix.
+     */
+    synchronized void endWrite(long offset, long length) throws IOException {
+        writesInFlight.computeIfPresent(offset, (start, count) -> count == 1 ? null : count - 1);
+        lastActivity = Instant.now();
+        if (length <= 0) {
+            return;
+        }
+        long start = offset;
+        long end = offset + length;
+        Map.Entry<Long, Long> floor = received.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next = received.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            received.remove(next.getKey());
+            next = received.ceilingEntry(start);
+        }
+        received.put(start, end);
+        receivedBytes = received.entrySet().stream().mapToLong(e -> e.getValue() - e.getKey()).sum();
+        advanceDigest();
+    }
+
+    private void advanceDigest() throws IOException {
+        long contiguous = contiguousEnd();
+        if (!writesInFlight.isEmpty()) {
+            // That write may still change anything from its offset on
+            contiguous = Math.min(contiguous, writesInFlight.firstKey());
+        }
+        if (contiguous <= hashedUpTo) {
+            return;
+        }
+        // The range was just written, so this reads back from the page cache
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(DIGEST_BUFFER, contiguous - hashedUpTo));
+        while (hashedUpTo < contiguous) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), contiguous - hashedUpTo));
+            int read = channel.read(buffer, hashedUpTo);
+            if (read <= 0) {
+                throw new IOException("Could not read back received bytes of upload " + uploadId);
+            }
+            buffer.flip();
+            if (pdf && !headerProbed) {
+                probeLinearizationHeader(buffer);
+            }
+            digest.update(buffer);
+            hashedUpTo += read;
+        }
+    }
+
+    private void probeLinearizationHeader(ByteBuffer firstBytes) {
+        if (hashedUpTo != 0) {
+            return;
+        }
+        headerProbed = true;
+        byte[] head = new byte[Math.min(firstBytes.remaining(), PdfPageCountProbe.LINEARIZATION_HEAD_BYTES)];
+        firstBytes.duplicate().get(head);
+        OptionalInt count = PdfPageCountProbe.probeLinearized(head, head.length, totalSize);
+        if (count.isPresent()) {
+            headerPageCount = count.getAsInt();
+        }
+    }
+
+    private long contiguousEnd() {
+        Long end = received.get(0L);
+        return end == null ? 0 : end;
+    }
+
+    synchronized boolean isComplete() {
+        return contiguousEnd() >= totalSize;
+    }
+
+    synchronized Integer getHeaderPageCount() {
+        return headerPageCount;
+    }
+
+    /**
+     * Stops accepting chunks and returns the hex SHA-256 of the whole file.
+     *
+     * @throws IllegalStateException if bytes are missing or chunks are still being written
+     */
+    synchronized String close() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Upload " + uploadId + " is already completed or aborted.");
+        }
+        if (!writesInFlight.isEmpty()) {
+            throw new IllegalStateException("Chunks of upload " + uploadId + " are still being written.");
+        }
+        if (!isComplete()) {
+            throw new IllegalStateException("Upload " + uploadId + " is missing bytes; resume from offset " + contiguousEnd() + ".");
+        }
+        advanceDigest();
+        closed = true;
+        channel.force(false);
+        channel.close();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    synchronized void abort() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // The part file is deleted next
+        }
+    }
+
+    /**
+     * Status for the client: what has arrived and where to resume.
+     */
+    public synchronized Map<String, Object> toResponse() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("uploadId", uploadId);
+        response.put("originalFileName", originalFileName);
+        response.put("totalSize", totalSize);
+        response.put("receivedBytes", receivedBytes);
+        response.put("nextOffset", contiguousEnd());
+        List<long[]> ranges = new ArrayList<>();
+        received.forEach((start, end) -> ranges.add(new long[] {start, end}));
+        response.put("receivedRanges", ranges);
+        response.put("complete", isComplete());
+        if (headerPageCount != null) {
+            response.put("pageCount", headerPageCount);
+        }
+        return response;
+    }
+}
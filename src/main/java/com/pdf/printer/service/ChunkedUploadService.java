@@ -0,0 +1,178 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pdf.printer.dto.StoredUpload;
+
+/**
+ * Resumable uploads: the client declares the file size, PUTs raw chunks at byte offsets in any
+ * order (re-sending a chunk is harmless) and completes when every byte has arrived. Chunks are
+ * written with positional writes into a preallocated part file, and hashing and the linearized
+ * page-count probe run as the contiguous prefix grows, so completion only moves the file into place.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final ContentStore contentStore;
+    private final FileStorageService fileStorageService;
+    private final long maxSizeBytes;
+    private final int chunkSizeBytes;
+    private final Duration sessionTtl;
+    private final Map<String, ChunkedUpload> sessions = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(ContentStore contentStore, FileStorageService fileStorageService,
+                                @Value("${print.upload.chunked.max-size-mb:200}") long maxSizeMb,
+                                @Value("${print.upload.chunked.chunk-size-kb:1024}") int chunkSizeKb,
+                                @Value("${print.upload.chunked.session-ttl-minutes:60}") long sessionTtlMinutes) {
+        this.contentStore = contentStore;
+        this.fileStorageService = fileStorageService;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.chunkSizeBytes = chunkSizeKb * 1024;
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+    }
+
+    /** Chunk size suggested to clients; larger chunks are accepted too. */
+    public int getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    /**
+     * Starts an upload and preallocates its part file.
+     *
+     * @throws IllegalArgumentException if the declared size is empty or above the limit
+     */
+    public ChunkedUpload init(String fileName, String mimeType, long totalSize) throws IOException {
+        pruneExpiredSessions();
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("File size must be greater than zero.");
+        }
+        if (totalSize > maxSizeBytes) {
+            throw new IllegalArgumentException("File is larger than the " + (maxSizeBytes / (1024 * 1024)) + " MB limit.");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        Path partFile = contentStore.newTempFile(".upload");
+        try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+            file.setLength(totalSize);
+        }
+        boolean pdf = "application/pdf".equals(mimeType) || (fileName != null && fileName.toLowerCase().endsWith(".pdf"));
+        ChunkedUpload upload;
+        try {
+            upload = new ChunkedUpload(uploadId, fileName, mimeType, totalSize, partFile, pdf);
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        sessions.put(uploadId, upload);
+        log.info("Started chunked upload {} for '{}' ({} bytes)", uploadId, fileName, totalSize);
+        return upload;
+    }
+
+    public Optional<ChunkedUpload> get(String uploadId) {
+        return Optional.ofNullable(sessions.get(uploadId));
+    }
+
+    /**
+     * Writes the request body at the given offset. A body that is cut off by a disconnect still
+     * counts for the bytes that made it to disk, so the client can resume from the reported offset.
+     *
+     * @throws IllegalArgumentException if the chunk lies outside the declared size
+     * @throws IllegalStateException    if the upload was already completed or aborted, or the offset
+     *                                  lies in the prefix that was already hashed
+     */
+    public ChunkedUpload writeChunk(ChunkedUpload upload, long offset, InputStream body) throws IOException {
+        if (offset < 0 || offset >= upload.getTotalSize()) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside the file (size " + upload.getTotalSize() + ").");
+        }
+        upload.beginWrite(offset);
+        long written = 0;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+            byte[] array = buffer.array();
+            int read;
+            while ((read = body.read(array)) != -1) {
+                if (offset + written + read > upload.getTotalSize()) {
+                    throw new IllegalArgumentException("Chunk at offset " + offset + " runs past the declared file size.");
+                }
+                buffer.clear().limit(read);
+                long position = offset + written;
+                while (buffer.hasRemaining()) {
+                    position += upload.getChannel().write(buffer, position);
+                }
+                written += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Chunk of upload {} at offset {} interrupted after {} bytes: {}", upload.getUploadId(), offset, written, e.getMessage());
+            upload.endWrite(offset, written);
+            throw e;
+        }
+        upload.endWrite(offset, written);
+        log.debug("Upload {}: wrote {} bytes at offset {}", upload.getUploadId(), written, offset);
+        return upload;
+    }
+
+    /**
+     * Finishes an upload whose bytes have all arrived and stores it as an original.
+     *
+     * @throws IllegalStateException    if bytes are missing or chunks are still in flight
+     * @throws IllegalArgumentException if the client's checksum does not match
+     */
+    public StoredUpload complete(ChunkedUpload upload, String expectedSha256) throws IOException {
+        String hash = upload.close();
+        sessions.remove(upload.getUploadId());
+        if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.equalsIgnoreCase(hash)) {
+            Files.deleteIfExists(upload.getPartFile());
+            throw new IllegalArgumentException("Checksum mismatch: the uploaded file is corrupted. Please upload it again.");
+        }
+        StoredUpload stored = fileStorageService.adoptAssembledOriginal(upload.getPartFile(), hash,
+                upload.getOriginalFileName(), upload.getMimeType(), upload.getHeaderPageCount());
+        log.info("Completed chunked upload {} as {}", upload.getUploadId(), stored.getStoredFileName());
+        return stored;
+    }
+
+    public void abort(ChunkedUpload upload) {
+        sessions.remove(upload.getUploadId());
+        upload.abort();
+        deletePartFile(upload);
+        log.info("Aborted chunked upload {}", upload.getUploadId());
+    }
+
+    private void pruneExpiredSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        sessions.values().removeIf(upload -> {
+            if (upload.getLastActivity().isAfter(cutoff)) {
+                return false;
+            }
+            upload.abort();
+            deletePartFile(upload);
+            log.info("Expired idle chunked upload {} for '{}'", upload.getUploadId(), upload.getOriginalFileName());
+            return true;
+        });
+    }
+
+    private void deletePartFile(ChunkedUpload upload) {
+        try {
+            Files.deleteIfExists(upload.getPartFile());
+        } catch (IOException e) {
+            log.warn("Could not delete part file {}: {}", upload.getPartFile(), e.getMessage());
+        }
+    }
+}
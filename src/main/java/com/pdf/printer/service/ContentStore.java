@@ -0,0 +1,310 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Content-addressed blob store inside the upload directory.
+ * <p>
+ * Originals are named after the SHA-256 of their bytes, so an identical file uploaded twice is
+ * stored once, and every derived variant (custom range, B&W) is named after the original's hash
+ * plus its parameters. Variants and page counts are produced once and reused by later uploads.
+ * Every upload/order that hands a blob name to a client holds a reference on it; a blob is
+ * only deleted when the last reference is released and no persisted order or print job still
+ * names it (see {@link #addReferenceSource}), since the in-memory counts do not survive a restart.
+ */
+@Service
+public class ContentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentStore.class);
+    private static final String TEMP_PREFIX = "part_";
+
+    private final Path root;
+    private final Map<String, Integer> refCounts = new HashMap<>(); // guarded by refLock
+    private final Object refLock = new Object();
+    private final Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+    private final Map<String, Object> variantLocks = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> deletionListeners = new CopyOnWriteArrayList<>();
+    private final List<ToLongFunction<String>> referenceSources = new CopyOnWriteArrayList<>();
+
+    @FunctionalInterface
+    public interface VariantWriter {
+        void write(Path target) throws IOException, InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface PageCounter {
+        int count(Path blob) throws IOException;
+    }
+
+    public static class StoredBlob {
+        private final String hash;
+        private final String fileName;
+        private final Path path;
+        private final boolean deduplicated;
+
+        StoredBlob(String hash, String fileName, Path path, boolean deduplicated) {
+            this.hash = hash;
+            this.fileName = fileName;
+            this.path = path;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getHash() { return hash; }
+        public String getFileName() { return fileName; }
+        public Path getPath() { return path; }
+        public boolean isDeduplicated() { return deduplicated; }
+    }
+
+    public ContentStore(@Value("${file.upload-dir}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    public static String originalName(String hash, String extension) {
+        return "orig_" + hash + extension;
+    }
+
+    public static String variantName(String kind, String hash, String suffix, String extension) {
+        return kind + "_" + hash + suffix + extension;
+    }
+
+    /**
+     * A fresh temp path in the store's directory, for callers that assemble an original themselves
+     * before handing it to {@link #adoptOriginal}.
+     */
+    public Path newTempFile(String suffix) {
+        return root.resolve(TEMP_PREFIX + UUID.randomUUID() + suffix);
+    }
+
+    /**
+     * Streams the upload to a temp file while hashing it, then moves it to its content-addressed
+     * name (or drops it if that blob already exists). The caller holds one reference on the result.
+     */
+    public StoredBlob storeOriginal(InputStream inputStream, String extension) throws IOException {
+        Path temp = newTempFile(extension);
+        MessageDigest digest = newDigest();
+        try (DigestInputStream in = new DigestInputStream(inputStream, digest)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        return adoptOriginal(temp, hash, extension);
+    }
+
+    /**
+     * Moves an already-written file with a known hash to its content-addressed name.
+     * The caller holds one reference on the result.
+     */
+    public StoredBlob adoptOriginal(Path source, String hash, String extension) throws IOException {
+        String fileName = originalName(hash, extension);
+        Path target = root.resolve(fileName);
+        synchronized (refLock) {
+            if (Files.exists(target)) {
+                Files.deleteIfExists(source);
+                acquireLocked(fileName);
+                log.info("Upload matches existing blob {}. Reusing stored original.", fileName);
+                return new StoredBlob(hash, fileName, target, true);
+            }
+            moveIntoPlace(source, target);
+            acquireLocked(fileName);
+        }
+        log.info("Stored new original blob {}", fileName);
+        return new StoredBlob(hash, fileName, target, false);
+    }
+
+    /**
+     * Returns the path of a derived blob, producing it with the writer only if it does not exist yet.
+     * Concurrent requests for the same variant wait for a single producer. The caller holds one
+     * reference on the result.
+     */
+    public Path materialize(String fileName, VariantWriter writer) throws IOException, InterruptedException {
+        Path target = resolve(fileName);
+        if (acquireIfExists(fileName, target)) {
+            log.info("Reusing cached variant {}", fileName);
+            return target;
+        }
+        Object lock = variantLocks.computeIfAbsent(fileName, k -> new Object());
+        try {
+            synchronized (lock) {
+                if (acquireIfExists(fileName, target)) {
+                    log.info("Reusing variant {} produced by a concurrent upload", fileName);
+                    return target;
+                }
+                // Produce into a temp name that keeps the extension (ImageMagick picks the format from it)
+                Path temp = root.resolve(TEMP_PREFIX + UUID.randomUUID().toString().substring(0, 8) + "_" + fileName);
+                try {
+                    writer.write(temp);
+                    if (!Files.exists(temp)) {
+                        throw new IOException("Variant writer completed but produced no file for " + fileName);
+                    }
+                    synchronized (refLock) {
+                        moveIntoPlace(temp, target);
+                        acquireLocked(fileName);
+                    }
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                return target;
+            }
+        } finally {
+            variantLocks.remove(fileName, lock);
+        }
+    }
+
+    /**
+     * Page count of a blob, computed once per blob name.
+     */
+    public int pageCount(String fileName, PageCounter counter) throws IOException {
+        Integer cached = pageCounts.get(fileName);
+        if (cached != null) {
+            return cached;
+        }
+        int count = counter.count(resolve(fileName));
+        pageCounts.put(fileName, count);
+        return count;
+    }
+
+    public void acquire(String fileName) {
+        synchronized (refLock) {
+            acquireLocked(fileName);
+        }
+    }
+
+    /**
+     * Registers a callback that receives the name of every blob deleted from the store, so caches
+     * derived from a blob (e.g. thumbnails) can be dropped with it.
+     */
+    public void onDelete(Consumer<String> listener) {
+        deletionListeners.add(listener);
+    }
+
+    /**
+     * Registers a source of references the in-memory counts cannot know about, such as orders and
+     * print jobs stored before a restart. It returns how many of them name a blob; a blob is only
+     * deleted while every source returns 0.
+     */
+    public void addReferenceSource(ToLongFunction<String> source) {
+        referenceSources.add(source);
+    }
+
+    /**
+     * Drops one reference and deletes the blob once nothing uses it anymore: no reference held in
+     * memory and none in the registered reference sources. If a source fails, the blob is kept.
+     */
+    public void release(String fileName) throws IOException {
+        Path path = resolve(fileName);
+        synchronized (refLock) {
+            Integer remaining = refCounts.computeIfPresent(fileName, (k, v) -> v > 1 ? v - 1 : null);
+            if (remaining != null) {
+                log.info("Released {}; still referenced {} time(s). Keeping file.", fileName, remaining);
+                return;
+            }
+        }
+        // Queried outside the lock; a reference taken meanwhile is caught by the check below
+        long persisted;
+        try {
+            persisted = persistedReferences(fileName);
+        } catch (RuntimeException e) {
+            log.warn("Could not check stored references to {}; keeping file: {}", fileName, e.getMessage());
+            return;
+        }
+        if (persisted > 0) {
+            log.info("Released {}; still named by {} stored order(s)/print job(s). Keeping file.", fileName, persisted);
+            return;
+        }
+        synchronized (refLock) {
+            if (refCounts.containsKey(fileName)) {
+                log.info("Released {}, but it was referenced again meanwhile. Keeping file.", fileName);
+                return;
+            }
+            pageCounts.remove(fileName);
+            if (Files.deleteIfExists(path)) {
+                log.info("File deleted successfully: {}", path);
+                deletionListeners.forEach(listener -> listener.accept(fileName));
+            } else {
+                log.warn("File not found for deletion, skipping: {}", path);
+            }
+        }
+    }
+
+    /**
+     * Resolves a blob name inside the store, rejecting anything that could escape it.
+     */
+    public Path resolve(String fileName) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IOException("Blob name is empty.");
+        }
+        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            log.error("Potential path traversal detected in blob name: '{}'.", fileName);
+            throw new IOException("Invalid blob name: " + fileName);
+        }
+        Path path = root.resolve(fileName).normalize();
+        if (!path.startsWith(root)) {
+            log.error("Resolved path '{}' is outside the upload directory '{}'.", path, root);
+            throw new IOException("Blob resolves outside the upload directory.");
+        }
+        return path;
+    }
+
+    private long persistedReferences(String fileName) {
+        long references = 0;
+        for (ToLongFunction<String> source : referenceSources) {
+            references += source.applyAsLong(fileName);
+        }
+        return references;
+    }
+
+    private boolean acquireIfExists(String fileName, Path path) {
+        synchronized (refLock) {
+            if (Files.exists(path)) {
+                acquireLocked(fileName);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void acquireLocked(String fileName) {
+        refCounts.merge(fileName, 1, Integer::sum);
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.pdf.printer.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pdf.printer.dto.FileInfo;
+
+/**
+ * Tracks one background page-count / custom-range / B&W conversion of an uploaded file.
+ * Instances are shared between the worker thread and status requests, so state is volatile.
+ */
+public class ConversionJob {
+
+    public enum Stage {
+        QUEUED("queued", 0),
+        COUNTING_PAGES("processing", 10),
+        EXTRACTING_RANGE("processing", 30),
+        CONVERTING("processing", 50),
+        PROCESSED("processed", 100),
+        FAILED("error", 100);
+
+        private final String status;
+        private final int progress;
+
+        Stage(String status, int progress) {
+            this.status = status;
+            this.progress = progress;
+        }
+
+        public String getStatus() { return status; }
+        public int getProgress() { return progress; }
+        public boolean isTerminal() { return this == PROCESSED || this == FAILED; }
+    }
+
+    private final String jobId;
+    private final String uniqueId; // Frontend item id, echoed back so the page can match responses
+    private final String originalFileName;
+    private final String mimeType;
+    private final Integer headerPageCount; // Known before processing for linearized PDFs
+    private final Instant createdAt = Instant.now();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<ConversionJob> completion = new CompletableFuture<>();
+
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile FileInfo result;
+    private volatile String error;
+    private volatile boolean clientError; // true when the failure was caused by bad input (e.g. invalid range)
+    private volatile boolean busy;        // true when a converter lane rejected the work; the client should retry
+    private volatile Instant finishedAt;
+
+    public ConversionJob(String jobId, String uniqueId, String originalFileName, String mimeType, Integer headerPageCount) {
+        this.jobId = jobId;
+        this.uniqueId = uniqueId;
+        this.originalFileName = originalFileName;
+        this.mimeType = mimeType;
+        this.headerPageCount = headerPageCount;
+    }
+
+    public String getJobId() { return jobId; }
+    public String getUniqueId() { return uniqueId; }
+    public String getOriginalFileName() { return originalFileName; }
+    public Stage getStage() { return stage; }
+    public FileInfo getResult() { return result; }
+    public String getError() { return error; }
+    public boolean isClientError() { return clientError; }
+    public boolean isBusy() { return busy; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    List<SseEmitter> getEmitters() { return emitters; }
+
+    /** Completes (never exceptionally) once the job reaches a terminal stage. */
+    public CompletableFuture<ConversionJob> getCompletion() { return completion; }
+
+    void moveTo(Stage stage) {
+        this.stage = stage;
+    }
+
+    void complete(FileInfo result) {
+        this.result = result;
+        this.finishedAt = Instant.now();
+        this.stage = Stage.PROCESSED;
+        completion.complete(this);
+    }
+
+    void failBusy(String error) {
+        this.busy = true;
+        fail(error, false);
+    }
+
+    void fail(String error, boolean clientError) {
+        this.error = error;
+        this.clientError = clientError;
+        this.finishedAt = Instant.now();
+        this.stage = Stage.FAILED;
+        completion.complete(this);
+    }
+
+    /**
+     * Snapshot in the same shape as the synchronous /print/upload response, plus job fields.
+     */
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jobId", jobId);
+        response.put("uniqueId", uniqueId);
+        response.put("status", stage.getStatus());
+        response.put("stage", stage.name());
+        response.put("progress", stage.getProgress());
+        response.put("originalFileName", originalFileName);
+        response.put("mimeType", mimeType);
+        FileInfo info = result;
+        if (info != null) {
+            response.put("url", info.getUrl());
+            response.put("c_url", info.getC_url());
+            response.put("fileName", info.getC_fileName());
+            response.put("bwFileName", info.getB_fileName());
+            response.put("pageCount", info.getPageCount());
+            response.put("thumbnailUrls", info.getThumbnailUrls());
+            response.put("bwThumbnailUrls", info.getBwThumbnailUrls());
+        } else if (headerPageCount != null) {
+            response.put("pageCount", headerPageCount);
+        }
+        if (error != null) {
+            response.put("error", error);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,181 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pdf.printer.config.VirtualThreads;
+import com.pdf.printer.dto.FileInfo;
+import com.pdf.printer.dto.StoredUpload;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs page counting, custom-range extraction and B&W conversion of uploads on a bounded
+ * worker pool so Tomcat request threads never wait on Ghostscript/ImageMagick.
+ */
+@Service
+public class ConversionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionJobService.class);
+    private static final long SSE_TIMEOUT_MS = Duration.ofMinutes(3).toMillis();
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor executor;
+    private final Duration jobRetention;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    public ConversionJobService(FileStorageService fileStorageService,
+                                @Value("${print.conversion.workers:0}") int workers,
+                                @Value("${print.conversion.queue-capacity:50}") int queueCapacity,
+                                @Value("${print.conversion.job-retention-minutes:30}") long retentionMinutes,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.fileStorageService = fileStorageService;
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                // Workers mostly wait on converter lanes and external processes; the pool size still bounds the work
+                VirtualThreads.factory("conversion-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobRetention = Duration.ofMinutes(retentionMinutes);
+        log.info("Conversion worker pool started with {} workers and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Queues the processing of a stored original and returns immediately.
+     *
+     * @throws RejectedExecutionException if the conversion queue is full
+     */
+    public ConversionJob submit(StoredUpload upload, String uniqueId, String pageRangeType, Integer startPage, Integer endPage) {
+        pruneFinishedJobs();
+        String jobId = UUID.randomUUID().toString();
+        ConversionJob job = new ConversionJob(jobId, uniqueId, upload.getOriginalFileName(), upload.getMimeType(),
+                upload.getHeaderPageCount());
+        jobs.put(jobId, job);
+        try {
+            executor.execute(() -> runJob(job, upload, pageRangeType, startPage, endPage));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            log.warn("Conversion queue full ({} queued). Rejecting job for '{}'.", executor.getQueue().size(), upload.getOriginalFileName());
+            throw e;
+        }
+        log.info("Queued conversion job {} for uniqueId '{}' (file '{}'). Queue depth: {}",
+                jobId, uniqueId, upload.getStoredFileName(), executor.getQueue().size());
+        return job;
+    }
+
+    public Optional<ConversionJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Opens an SSE stream that receives a "progress" event on every stage change and a final
+     * "result" event, after which the stream is completed.
+     */
+    public SseEmitter subscribe(ConversionJob job) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(e -> job.getEmitters().remove(emitter));
+        job.getEmitters().add(emitter);
+        // The job may have moved on (or finished) before the emitter was registered
+        publish(job);
+        return emitter;
+    }
+
+    private void runJob(ConversionJob job, StoredUpload upload, String pageRangeType, Integer startPage, Integer endPage) {
+        long started = System.nanoTime();
+        try {
+            FileInfo info = fileStorageService.processStoredUpload(upload, pageRangeType, startPage, endPage, stage -> {
+                job.moveTo(stage);
+                publish(job);
+            });
+            job.complete(info);
+            log.info("Conversion job {} finished in {} ms. Result: {}", job.getJobId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), info);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid arguments in conversion job {} for '{}': {}", job.getJobId(), upload.getOriginalFileName(), e.getMessage());
+            job.fail(e.getMessage(), true);
+        } catch (ConverterBusyException e) {
+            log.warn("Conversion job {} rejected by a saturated converter lane: {}", job.getJobId(), e.getMessage());
+            job.failBusy(e.getMessage());
+        } catch (IOException e) {
+            log.error("Conversion job {} failed for '{}': {}", job.getJobId(), upload.getOriginalFileName(), e.getMessage(), e);
+            job.fail("File processing failed: " + e.getMessage(), false);
+        } catch (Exception e) {
+            log.error("Unexpected error in conversion job {} for '{}'", job.getJobId(), upload.getOriginalFileName(), e);
+            job.fail("An unexpected server error occurred during processing.", false);
+        }
+        publish(job);
+    }
+
+    private void publish(ConversionJob job) {
+        if (job.getEmitters().isEmpty()) {
+            return;
+        }
+        boolean terminal = job.getStage().isTerminal();
+        Map<String, Object> snapshot = job.toResponse();
+        for (SseEmitter emitter : job.getEmitters()) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(terminal ? "result" : "progress")
+                        .data(snapshot, MediaType.APPLICATION_JSON));
+                if (terminal) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping SSE subscriber for job {}: {}", job.getJobId(), e.getMessage());
+                job.getEmitters().remove(emitter);
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    /**
+     * Point-in-time metrics of the conversion worker pool.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("workers", executor.getMaximumPoolSize());
+        snapshot.put("active", executor.getActiveCount());
+        snapshot.put("queueDepth", executor.getQueue().size());
+        snapshot.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        snapshot.put("completedJobs", executor.getCompletedTaskCount());
+        snapshot.put("trackedJobs", jobs.size());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down conversion worker pool ({} active, {} queued)", executor.getActiveCount(), executor.getQueue().size());
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
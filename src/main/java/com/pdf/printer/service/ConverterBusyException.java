@@ -0,0 +1,13 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an external converter lane (Ghostscript, ImageMagick) is saturated and the
+ * request should be retried later rather than queued without bound.
+ */
+public class ConverterBusyException extends IOException {
+    public ConverterBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,193 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs external converters with a per-tool concurrency limit and a bounded wait queue.
+ * <p>
+ * A burst of uploads no longer forks one Ghostscript per request: at most {@code max-concurrency}
+ * processes per tool run at once, up to {@code queue-capacity} callers wait for a slot, and anything
+ * beyond that is rejected with {@link ConverterBusyException}. Process output goes to DISCARD and
+ * stderr to a temp file, so no reader threads are started per conversion.
+ */
+@Service
+public class ConverterPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ConverterPool.class);
+
+    public enum Tool { GHOSTSCRIPT, IMAGEMAGICK }
+
+    private final Map<Tool, Lane> lanes = new EnumMap<>(Tool.class);
+    private final long maxWaitSeconds;
+
+    public ConverterPool(@Value("${print.converter.ghostscript.max-concurrency:0}") int gsConcurrency,
+                         @Value("${print.converter.imagemagick.max-concurrency:0}") int imConcurrency,
+                         @Value("${print.converter.queue-capacity:20}") int queueCapacity,
+                         @Value("${print.converter.max-wait-seconds:60}") long maxWaitSeconds) {
+        int defaultConcurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        lanes.put(Tool.GHOSTSCRIPT, new Lane(gsConcurrency > 0 ? gsConcurrency : defaultConcurrency, queueCapacity));
+        lanes.put(Tool.IMAGEMAGICK, new Lane(imConcurrency > 0 ? imConcurrency : defaultConcurrency, queueCapacity));
+        this.maxWaitSeconds = maxWaitSeconds;
+        lanes.forEach((tool, lane) -> log.info("Converter lane {}: {} concurrent processes, {} waiting at most",
+                tool, lane.permits, lane.queueCapacity));
+    }
+
+    /**
+     * Waits for a slot in the tool's lane and runs the process to completion.
+     *
+     * @throws ConverterBusyException if the lane's wait queue is full or no slot frees up in time
+     */
+    public void execute(Tool tool, ProcessBuilder processBuilder, String processName, int timeoutSeconds)
+            throws IOException, InterruptedException {
+        Lane lane = lanes.get(tool);
+        long waitStart = System.nanoTime();
+        boolean acquired = lane.slots.tryAcquire();
+        if (!acquired) {
+            if (lane.waiting.incrementAndGet() > lane.queueCapacity) {
+                lane.waiting.decrementAndGet();
+                lane.rejected.increment();
+                log.warn("{} lane full ({} waiting). Rejecting {}.", tool, lane.queueCapacity, processName);
+                throw new ConverterBusyException("Conversion service is busy. Please retry shortly.");
+            }
+            try {
+                acquired = lane.slots.tryAcquire(maxWaitSeconds, TimeUnit.SECONDS);
+            } finally {
+                lane.waiting.decrementAndGet();
+            }
+        }
+        long waitedNanos = System.nanoTime() - waitStart;
+        lane.recordWait(waitedNanos);
+        if (!acquired) {
+            lane.rejected.increment();
+            log.warn("No {} slot became free within {}s for {}. Rejecting.", tool, maxWaitSeconds, processName);
+            throw new ConverterBusyException("Conversion service is busy. Please retry shortly.");
+        }
+        lane.active.incrementAndGet();
+        try {
+            log.debug("{} waited {} ms for a {} slot", processName, TimeUnit.NANOSECONDS.toMillis(waitedNanos), tool);
+            runProcess(processBuilder, processName, timeoutSeconds);
+            lane.completed.increment();
+        } catch (IOException | InterruptedException e) {
+            lane.failed.increment();
+            throw e;
+        } finally {
+            lane.active.decrementAndGet();
+            lane.slots.release();
+        }
+    }
+
+    private void runProcess(ProcessBuilder processBuilder, String processName, int timeoutSeconds) throws IOException, InterruptedException {
+        log.info("Executing command: {} {}", processName, String.join(" ", processBuilder.command()));
+        Process process = null;
+        Path stderrFile = Files.createTempFile("converter-", ".err");
+        try {
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            processBuilder.redirectError(stderrFile.toFile());
+            process = processBuilder.start();
+
+            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!finished) {
+                log.error("{} timed out after {} seconds. Attempting to destroy.", processName, timeoutSeconds);
+                process.destroyForcibly();
+                throw new IOException(processName + " timed out after " + timeoutSeconds + " seconds.");
+            }
+
+            String errorOutput = Files.readString(stderrFile, StandardCharsets.UTF_8).trim();
+            int exitCode = process.exitValue();
+            if (exitCode != 0) {
+                errorOutput.lines().forEach(line -> log.error("[{}] {}", processName, line));
+                log.error("{} failed with exit code {}. Check logs for error output.", processName, exitCode);
+                String errorDetails = !errorOutput.isEmpty() ? ": " + errorOutput : ". Check logs for details.";
+                throw new IOException(processName + " failed with exit code " + exitCode + errorDetails);
+            }
+            if (!errorOutput.isEmpty()) {
+                log.warn("[{}] {}", processName, errorOutput);
+            }
+            log.info("{} completed successfully.", processName);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("{} process was interrupted.", processName, e);
+            if (process != null) process.destroyForcibly();
+            throw new InterruptedException(processName + " interrupted.");
+        } catch (IOException e) {
+            // Log specific error if command not found
+            if (e.getMessage() != null && e.getMessage().contains("Cannot run program") && e.getMessage().contains("No such file or directory")) {
+                log.error("!!! {} execution failed: Command ('{}') not found or not executable in PATH. Ensure Ghostscript/ImageMagick are installed and accessible. !!!", processName, processBuilder.command().get(0));
+            } else {
+                log.error("{} execution failed.", processName, e);
+            }
+            if (process != null) process.destroyForcibly();
+            throw e;
+        } finally {
+            Files.deleteIfExists(stderrFile);
+        }
+    }
+
+    /**
+     * Point-in-time metrics per lane: queue depth, active processes and wait times.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        lanes.forEach((tool, lane) -> snapshot.put(tool.name().toLowerCase(), lane.snapshot()));
+        return snapshot;
+    }
+
+    private static class Lane {
+        private final int permits;
+        private final int queueCapacity;
+        private final Semaphore slots;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waits = new LongAdder();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        Lane(int permits, int queueCapacity) {
+            this.permits = permits;
+            this.queueCapacity = Math.max(0, queueCapacity);
+            this.slots = new Semaphore(permits, true);
+        }
+
+        void recordWait(long nanos) {
+            waits.increment();
+            totalWaitNanos.addAndGet(nanos);
+            maxWaitNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> snapshot() {
+            long count = waits.sum();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("maxConcurrency", permits);
+            values.put("active", active.get());
+            values.put("queueDepth", waiting.get());
+            values.put("queueCapacity", queueCapacity);
+            values.put("completed", completed.sum());
+            values.put("failed", failed.sum());
+            values.put("rejected", rejected.sum());
+            values.put("avgWaitMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count));
+            values.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+            return values;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pdf.printer.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Caches dashboard reads per shop phone, query kind and date range. Recording a payment bumps the
+ * phone's generation once its transaction commits; the generation is part of the key, so that
+ * shop's older entries are never served again and simply age out. A read that raced with the commit
+ * can only store its result under the old generation, so no stale entry survives an invalidation.
+ * Payments recorded by another instance show up here once the entries expire.
+ */
+@Component
+public class DashboardCache {
+
+    public enum Kind { PAYMENTS, TOTAL, COUNT, FIRST_PAGE }
+
+    private record Key(String phoneNumber, long generation, Kind kind, PaymentService.DateRange range, int limit) {
+    }
+
+    private final Cache<Key, Object> cache;
+    // One counter per shop phone; there are only as many as there are shops
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public DashboardCache(@Value("${print.dashboard.cache.max-entries:10000}") long maxEntries,
+                          @Value("${print.dashboard.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cached value, loading it on a miss. {@code limit} distinguishes page sizes, 0 otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String phoneNumber, Kind kind, PaymentService.DateRange range, int limit, Supplier<T> loader) {
+        Key key = new Key(phoneNumber, generation(phoneNumber).get(), kind, range, limit);
+        return (T) cache.get(key, k -> loader.get());
+    }
+
+    /**
+     * Drops the phone's entries when the current transaction commits (right away outside one), so
+     * a rolled-back payment never evicts anything and a committed one is visible to the next read.
+     */
+    public void invalidate(String phoneNumber) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation(phoneNumber).incrementAndGet();
+                }
+            });
+        } else {
+            generation(phoneNumber).incrementAndGet();
+        }
+    }
+
+    private AtomicLong generation(String phoneNumber) {
+        return generations.computeIfAbsent(phoneNumber, p -> new AtomicLong());
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("size", cache.estimatedSize());
+        values.put("hits", stats.hitCount());
+        values.put("misses", stats.missCount());
+        values.put("hitRate", stats.hitRate());
+        values.put("evictions", stats.evictionCount());
+        values.put("avgLoadMs", TimeUnit.NANOSECONDS.toMillis((long) stats.averageLoadPenalty()));
+        return values;
+    }
+}
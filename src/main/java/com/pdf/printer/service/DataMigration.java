@@ -0,0 +1,25 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Marks a one-off data migration as done, so startup tasks such as
+ * {@link PaymentService#backfillDailyRollup} run once per database rather than guessing from the
+ * state of the tables they fill.
+ */
+@Table(name = "data_migrations")
+@Data
+@NoArgsConstructor
+@Entity
+public class DataMigration {
+
+    @Id
+    @Column(name = "name", nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,123 @@
+package com.pdf.printer.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers an order as print email(s) to the shop's address, e.g. Epson Connect. The parts of a
+ * split order ({@link PrintFulfillmentService#preparePrintEmails}) are sent in parallel, each over
+ * a connection borrowed from {@link SmtpTransportPool}; connections stay open between messages, so
+ * consecutive sends reuse the session. The fallback for every shop with an email address.
+ */
+@Component
+@Order(2)
+public class EmailDeliveryChannel implements PrintDeliveryChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDeliveryChannel.class);
+
+    private final PrintFulfillmentService fulfillmentService;
+    private final SmtpTransportPool transportPool;
+    // Part sends only wait for a connection, never for a job, so they cannot deadlock with the job workers
+    private final ExecutorService senders;
+
+    public EmailDeliveryChannel(PrintFulfillmentService fulfillmentService, JavaMailSender mailSender,
+                                @Value("${print.mail.connections:4}") int connectionCount,
+                                @Value("${print.mail.idle-timeout-seconds:60}") long idleTimeoutSeconds) {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            throw new IllegalStateException("Email delivery needs a JavaMailSenderImpl, got " + mailSender.getClass().getName());
+        }
+        this.fulfillmentService = fulfillmentService;
+        int connections = Math.max(1, connectionCount);
+        this.transportPool = new SmtpTransportPool(sender.getSession(), sender.getHost(), sender.getPort(),
+                sender.getUsername(), sender.getPassword(), connections, Duration.ofSeconds(idleTimeoutSeconds));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "print-mail-send-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String name() {
+        return "email";
+    }
+
+    @Override
+    public boolean supports(ShopRegistry.ShopInfo shop) {
+        return shop.email() != null && !shop.email().isBlank();
+    }
+
+    @Override
+    public Outcome deliver(ShopRegistry.ShopInfo shop, List<FileOrderItem> items, String orderReference,
+                           IntFunction<Set<Integer>> delivered) throws Exception {
+        try (PrintFulfillmentService.PrintEmails emails = fulfillmentService.preparePrintEmails(items, orderReference)) {
+            int parts = emails.parts().size();
+            Set<Integer> alreadySent = delivered.apply(parts);
+            Map<Integer, Future<?>> sends = new LinkedHashMap<>();
+            for (PrintFulfillmentService.PrintEmail email : emails.parts()) {
+                if (!alreadySent.contains(email.part())) {
+                    sends.put(email.part(), senders.submit(() -> send(email)));
+                }
+            }
+            Set<Integer> sent = new TreeSet<>();
+            Exception failure = null;
+            for (Map.Entry<Integer, Future<?>> send : sends.entrySet()) {
+                try {
+                    send.getValue().get();
+                    sent.add(send.getKey());
+                } catch (ExecutionException e) {
+                    log.error("Email part {}/{} of order {} failed: {}", send.getKey(), parts, orderReference,
+                            e.getCause().getMessage());
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                }
+            }
+            return new Outcome(parts, sent, failure);
+        }
+    }
+
+    private Void send(PrintFulfillmentService.PrintEmail email) throws Exception {
+        try (SmtpTransportPool.Connection connection = transportPool.acquire()) {
+            connection.send(email.message());
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${print.mail.idle-check-interval-ms:30000}")
+    public void closeIdleConnections() {
+        transportPool.closeIdle();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(30, TimeUnit.SECONDS);
+        transportPool.close();
+    }
+}
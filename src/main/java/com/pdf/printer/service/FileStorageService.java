@@ -1,7 +1,9 @@
 package com.pdf.printer.service;
 
 import com.pdf.printer.dto.FileInfo;
+import com.pdf.printer.dto.StoredUpload;
 import org.apache.pdfbox.Loader; // Use Loader for newer PDFBox
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.multipdf.Splitter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.slf4j.Logger;
@@ -12,16 +14,17 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class FileStorageService {
@@ -29,11 +32,27 @@ public class FileStorageService {
     private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
     private final Path fileStorageLocation;
     private final String uploadsBaseUrl = "/uploads/";
+    private final ContentStore contentStore;
+    private final GrayscalePdfConverter grayscalePdfConverter;
+    private final PdfRangeExtractor pdfRangeExtractor;
+    private final ThumbnailService thumbnailService;
+    private final ConverterPool converterPool;
+
+    // "pdfbox" converts in-process and falls back to Ghostscript; "ghostscript" always forks gs
+    @Value("${print.conversion.pdf-engine:pdfbox}")
+    private String pdfEngine;
 
     @Value("${file.upload-dir}")
     private String uploadDir;
 
-    public FileStorageService(@Value("${file.upload-dir}") String uploadDir) {
+    public FileStorageService(@Value("${file.upload-dir}") String uploadDir, ContentStore contentStore,
+                              GrayscalePdfConverter grayscalePdfConverter, PdfRangeExtractor pdfRangeExtractor,
+                              ThumbnailService thumbnailService, ConverterPool converterPool) {
+        this.contentStore = contentStore;
+        this.grayscalePdfConverter = grayscalePdfConverter;
+        this.pdfRangeExtractor = pdfRangeExtractor;
+        this.thumbnailService = thumbnailService;
+        this.converterPool = converterPool;
         // Ensure uploadDir is not null or empty before creating Path
          if (uploadDir == null || uploadDir.isBlank()) {
              log.error("!!! Configuration error: 'file.upload-dir' property is missing or empty! Uploads will likely fail. !!!");
@@ -80,8 +99,81 @@ public class FileStorageService {
     }
 
     public FileInfo storeFile(MultipartFile file, String pageRangeType, Integer startPage, Integer endPage) throws IOException, IllegalArgumentException {
-        String inputOriginalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-         String mimeType = file.getContentType(); // Get mime type early
+        StoredUpload upload = storeOriginal(file);
+        return processStoredUpload(upload, pageRangeType, startPage, endPage, stage -> { });
+    }
+
+    /**
+     * Persists the color original of an upload without doing any PDF or image processing,
+     * so callers on a request thread can return quickly and hand the rest to a worker.
+     */
+    public StoredUpload storeOriginal(MultipartFile file) throws IOException {
+        String mimeType = file.getContentType(); // Get mime type early
+        UploadName name = parseUploadName(file.getOriginalFilename(), mimeType);
+        String inputOriginalFileName = name.originalFileName();
+        String baseName = name.baseName();
+        String extension = name.extension();
+
+        // Hash while streaming; an identical file uploaded earlier is stored only once
+        log.info("Storing original file from '{}' ({})", inputOriginalFileName, mimeType);
+        boolean isPdf = isPdf(extension, mimeType);
+        boolean isImage = isImage(extension, mimeType);
+
+        ContentStore.StoredBlob blob;
+        Integer headerPageCount = null;
+        try (InputStream inputStream = new BufferedInputStream(file.getInputStream(), PdfPageCountProbe.LINEARIZATION_HEAD_BYTES * 8)) {
+            if (isPdf) {
+                // Linearized PDFs state their page count in the first object; read it before the body is stored
+                inputStream.mark(PdfPageCountProbe.LINEARIZATION_HEAD_BYTES);
+                byte[] head = inputStream.readNBytes(PdfPageCountProbe.LINEARIZATION_HEAD_BYTES);
+                inputStream.reset();
+                OptionalInt linearizedCount = PdfPageCountProbe.probeLinearized(head, head.length, file.getSize());
+                if (linearizedCount.isPresent()) {
+                    headerPageCount = linearizedCount.getAsInt();
+                    log.info("Linearized PDF '{}' declares {} pages", inputOriginalFileName, headerPageCount);
+                }
+            }
+            blob = contentStore.storeOriginal(inputStream, extension);
+            log.debug("Successfully stored input stream as {} (deduplicated={})", blob.getFileName(), blob.isDeduplicated());
+        } catch (IOException ex) {
+            log.error("Could not store original file from input '{}'", inputOriginalFileName, ex);
+            throw new IOException("Could not store file " + inputOriginalFileName + ". Please try again!", ex);
+        }
+
+        return new StoredUpload(blob.getHash(), blob.getFileName(), blob.getPath(), inputOriginalFileName,
+                baseName, extension, mimeType, isPdf, isImage, headerPageCount);
+    }
+
+    /**
+     * Stores an original that was assembled elsewhere (e.g. from upload chunks) and already hashed.
+     */
+    public StoredUpload adoptAssembledOriginal(Path assembledFile, String contentHash, String originalFileName,
+                                               String mimeType, Integer headerPageCount) throws IOException {
+        UploadName name = parseUploadName(originalFileName, mimeType);
+        ContentStore.StoredBlob blob = contentStore.adoptOriginal(assembledFile, contentHash, name.extension());
+        log.info("Stored assembled upload '{}' as {} (deduplicated={})", name.originalFileName(), blob.getFileName(), blob.isDeduplicated());
+        return new StoredUpload(blob.getHash(), blob.getFileName(), blob.getPath(), name.originalFileName(),
+                name.baseName(), name.extension(), mimeType, isPdf(name.extension(), mimeType),
+                isImage(name.extension(), mimeType), headerPageCount);
+    }
+
+    private boolean isPdf(String extension, String mimeType) {
+        return ".pdf".equals(extension) || "application/pdf".equals(mimeType);
+    }
+
+    private boolean isImage(String extension, String mimeType) {
+        return isImageExtension(extension) || (mimeType != null && mimeType.startsWith("image/"));
+    }
+
+    private record UploadName(String originalFileName, String baseName, String extension) {
+    }
+
+    /**
+     * Cleans the client's file name and derives the base name and lower-case extension
+     * (falling back to the MIME type when the name has none).
+     */
+    private UploadName parseUploadName(String clientFileName, String mimeType) {
+        String inputOriginalFileName = clientFileName == null ? null : StringUtils.cleanPath(clientFileName);
 
         if (inputOriginalFileName == null || inputOriginalFileName.isEmpty()) {
             inputOriginalFileName = "upload_" + UUID.randomUUID();
@@ -112,31 +204,60 @@ public class FileStorageService {
                 else log.warn("Could not infer standard extension from mimeType: {}", mimeType);
              }
         }
+        return new UploadName(inputOriginalFileName, baseName, extension);
+    }
 
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
-        String originalColorStoredFileName = "orig_" + uniqueId + "_" + baseName + extension;
-        Path originalColorTargetPath = this.fileStorageLocation.resolve(originalColorStoredFileName);
+    /**
+     * Drops the hold on a stored original that will never be processed (e.g. the conversion queue rejected it).
+     */
+    public void discardOriginal(StoredUpload upload) {
+        try {
+            contentStore.release(upload.getStoredFileName());
+            log.info("Discarded unprocessed original: {}", upload.getStoredFileName());
+        } catch (IOException e) {
+            log.warn("Could not discard unprocessed original {}: {}", upload.getStoredFileName(), e.getMessage());
+        }
+    }
 
-        log.info("Storing original file from '{}' ({}) as: {}", inputOriginalFileName, mimeType, originalColorStoredFileName);
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, originalColorTargetPath, StandardCopyOption.REPLACE_EXISTING);
-            log.debug("Successfully copied input stream to {}", originalColorTargetPath);
-        } catch (IOException ex) {
-            log.error("Could not store original file {} from input '{}'", originalColorStoredFileName, inputOriginalFileName, ex);
-            throw new IOException("Could not store file " + inputOriginalFileName + ". Please try again!", ex);
+    /**
+     * Counts pages, applies the custom page range and generates the B&W version of a stored original.
+     * The listener is told which stage is starting so callers can report progress. Variants and page
+     * counts already produced for the same content are reused, and the upload's hold on the original
+     * is released once the returned files are referenced.
+     */
+    public FileInfo processStoredUpload(StoredUpload upload, String pageRangeType, Integer startPage, Integer endPage,
+                                        Consumer<ConversionJob.Stage> stageListener) throws IOException, IllegalArgumentException {
+        try {
+            return processHeldUpload(upload, pageRangeType, startPage, endPage, stageListener);
+        } finally {
+            contentStore.release(upload.getStoredFileName());
         }
+    }
+
+    private FileInfo processHeldUpload(StoredUpload upload, String pageRangeType, Integer startPage, Integer endPage,
+                                       Consumer<ConversionJob.Stage> stageListener) throws IOException, IllegalArgumentException {
+        String inputOriginalFileName = upload.getOriginalFileName();
+        String mimeType = upload.getMimeType();
+        String extension = upload.getExtension();
+        String contentHash = upload.getContentHash();
+        String originalColorStoredFileName = upload.getStoredFileName();
+        Path originalColorTargetPath = upload.getStoredPath();
 
         Path finalColorFilePath = originalColorTargetPath;
         String finalColorFileName = originalColorStoredFileName;
         int finalPageCount = 0;
-        boolean isPdf = ".pdf".equals(extension) || "application/pdf".equals(mimeType);
-        boolean isImage = isImageExtension(extension) || (mimeType != null && mimeType.startsWith("image/"));
+        boolean isPdf = upload.isPdf();
+        boolean isImage = upload.isImage();
+        boolean customRangeApplied = false;
 
 
         int originalPageCount = 0;
         if (isPdf) {
-            try (PDDocument document = Loader.loadPDF(originalColorTargetPath.toFile())) { // Use Loader
-                originalPageCount = document.getNumberOfPages();
+            stageListener.accept(ConversionJob.Stage.COUNTING_PAGES);
+            try {
+                Integer headerPageCount = upload.getHeaderPageCount();
+                originalPageCount = contentStore.pageCount(originalColorStoredFileName,
+                        pdf -> headerPageCount != null ? headerPageCount : countPdfPages(pdf));
                 log.info("Original PDF page count for '{}': {}", originalColorStoredFileName, originalPageCount);
                 if (originalPageCount == 0) {
                     log.warn("PDF '{}' reported 0 pages.", originalColorStoredFileName);
@@ -173,21 +294,25 @@ public class FileStorageService {
                 throw new IllegalArgumentException("Invalid page range. Start must be >= 1, End must be >= Start, and End must not exceed total pages (" + originalPageCount + ").");
             }
 
-            String customBaseName = "custom_" + uniqueId + "_" + baseName;
-            String customColorFileName = customBaseName + "_p" + startPage + "-" + endPage + extension;
-            Path customColorTargetPath = this.fileStorageLocation.resolve(customColorFileName);
+            stageListener.accept(ConversionJob.Stage.EXTRACTING_RANGE);
+            String customColorFileName = ContentStore.variantName("custom", contentHash, "_p" + startPage + "-" + endPage, extension);
+            int[] extractedPages = {0};
             try {
-                createCustomPdf(originalColorTargetPath.toString(), customColorTargetPath.toString(), startPage, endPage);
-                finalColorFilePath = customColorTargetPath;
+                finalColorFilePath = contentStore.materialize(customColorFileName,
+                        target -> extractedPages[0] = pdfRangeExtractor.extract(originalColorTargetPath, target, startPage, endPage));
                 finalColorFileName = customColorFileName;
-                try (PDDocument customDoc = Loader.loadPDF(customColorTargetPath.toFile())) { // Use Loader
-                    finalPageCount = customDoc.getNumberOfPages();
-                    int expectedCount = endPage - startPage + 1;
-                    if (finalPageCount != expectedCount) {
-                       log.warn("Custom PDF page count ({}) differs from expected range ({}). Using actual count.", finalPageCount, expectedCount);
-                    }
+                customRangeApplied = true;
+                // The extractor reports the count; only a variant reused from an earlier upload needs probing
+                finalPageCount = contentStore.pageCount(customColorFileName,
+                        pdf -> extractedPages[0] > 0 ? extractedPages[0] : countPdfPages(pdf));
+                int expectedCount = endPage - startPage + 1;
+                if (finalPageCount != expectedCount) {
+                   log.warn("Custom PDF page count ({}) differs from expected range ({}). Using actual count.", finalPageCount, expectedCount);
                 }
-                log.info("Created custom color PDF: {} with {} pages", customColorFileName, finalPageCount);
+                log.info("Custom color PDF ready: {} with {} pages", customColorFileName, finalPageCount);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while creating custom page range PDF.", e);
             } catch (IOException e) {
                 log.error("Failed to create custom PDF from {} to {}", originalColorStoredFileName, customColorFileName, e);
                 throw new IOException("Failed to create custom page range PDF.", e);
@@ -198,11 +323,15 @@ public class FileStorageService {
              else log.warn("Custom page range requested but parameters invalid/missing (Start: {}, End: {}). Using all pages for '{}'.", startPage, endPage, originalColorStoredFileName);
         }
 
+        // The original is handed out as the color file; hold it for the order
+        if (!customRangeApplied) {
+            contentStore.acquire(originalColorStoredFileName);
+        }
+
         // --- Generate Final B&W Version ---
-         String bwBaseName = "bw_" + uniqueId + "_" + baseName;
-         String rangeSuffix = (isPdf && "custom".equals(pageRangeType) && startPage != null && endPage != null) ? "_p" + startPage + "-" + endPage : "";
-         String finalBwFileName = bwBaseName + rangeSuffix + extension;
-        Path finalBwTargetPath = this.fileStorageLocation.resolve(finalBwFileName);
+         stageListener.accept(ConversionJob.Stage.CONVERTING);
+         String rangeSuffix = customRangeApplied ? "_p" + startPage + "-" + endPage : "";
+         String finalBwFileName = ContentStore.variantName("bw", contentHash, rangeSuffix, extension);
         String bwSourcePath = finalColorFilePath.toString();
 
         log.info("Attempting to generate final B&W file '{}' from source '{}'", finalBwFileName, bwSourcePath);
@@ -211,26 +340,26 @@ public class FileStorageService {
         try {
             if (finalPageCount > 0) {
                 if (isPdf) {
-                    convertPdfToBW(bwSourcePath, finalBwTargetPath.toString());
+                    contentStore.materialize(finalBwFileName, target -> convertPdfToBW(bwSourcePath, target.toString()));
                 } else if (isImage) {
-                    convertImageToBW(bwSourcePath, finalBwTargetPath.toString());
+                    contentStore.materialize(finalBwFileName, target -> convertImageToBW(bwSourcePath, target.toString()));
                 } else {
                     log.warn("Unsupported type for B&W conversion: extension='{}', mimeType='{}'. B&W file '{}' will not be generated.", extension, mimeType, finalBwFileName);
                     finalBwFileName = null;
                 }
 
-                if (finalBwFileName != null && Files.exists(finalBwTargetPath)) {
+                if (finalBwFileName != null) {
                      bUrl = uploadsBaseUrl + finalBwFileName;
-                     log.info("Successfully generated final B&W file: {}", finalBwFileName);
-                } else if (finalBwFileName != null) {
-                     log.error("B&W conversion command completed but output file '{}' not found!", finalBwFileName);
-                     finalBwFileName = null;
+                     log.info("Final B&W file ready: {}", finalBwFileName);
                 }
             } else {
                 log.warn("Skipping B&W conversion for '{}' as it has 0 pages.", finalColorFileName);
                 finalBwFileName = null;
             }
 
+        } catch (ConverterBusyException e) {
+            // Let the caller report "busy, retry" instead of handing out a file without a B&W version
+            throw e;
         } catch (IOException | InterruptedException e) {
             log.error("Failed to generate final B&W file '{}' from '{}'", finalBwFileName, bwSourcePath, e);
             finalBwFileName = null;
@@ -243,46 +372,53 @@ public class FileStorageService {
                  inputOriginalFileName, finalBwFileName, finalColorFileName, bUrl, cUrl, finalPageCount, mimeType);
 
         // Pass back original name AND original mimeType
-        return new FileInfo(finalBwFileName, finalColorFileName, bUrl, cUrl, finalPageCount, inputOriginalFileName, mimeType);
+        FileInfo fileInfo = new FileInfo(finalBwFileName, finalColorFileName, bUrl, cUrl, finalPageCount, inputOriginalFileName, mimeType);
+        // Thumbnails are rendered lazily when the page first requests them
+        fileInfo.setThumbnailUrls(thumbnailService.thumbnailUrls(finalColorFileName, finalPageCount));
+        fileInfo.setBwThumbnailUrls(thumbnailService.thumbnailUrls(finalBwFileName, finalPageCount));
+        return fileInfo;
     }
 
-
-    private void createCustomPdf(String inputPath, String outputPath, int startPage, int endPage) throws IOException {
-        File inputFile = new File(inputPath);
-        if (!inputFile.exists()) {
-            throw new IOException("Input PDF not found: " + inputPath);
+    /**
+     * Reads the page count from the trailer and page tree root; only files the probe cannot parse
+     * (xref streams, damaged tables) are loaded with PDFBox, buffered in temp files rather than heap.
+     */
+    static int countPdfPages(Path pdf) throws IOException {
+        OptionalInt probed = PdfPageCountProbe.probe(pdf);
+        if (probed.isPresent()) {
+            return probed.getAsInt();
         }
-        try (PDDocument document = Loader.loadPDF(inputFile)) { // Use Loader
-             if (startPage < 1 || endPage > document.getNumberOfPages() || startPage > endPage) {
-                 throw new IllegalArgumentException(String.format("Invalid page range %d-%d for document with %d pages", startPage, endPage, document.getNumberOfPages()));
-             }
-
-             try (PDDocument customDoc = new PDDocument()) {
-                 // Page numbers in PDDocument are 0-indexed
-                 for (int i = startPage - 1; i < endPage; i++) {
-                     customDoc.addPage(document.getPage(i));
-                 }
-                  if (customDoc.getNumberOfPages() == 0) {
-                      throw new IOException("Resulting custom PDF has 0 pages. Range: " + startPage + "-" + endPage);
-                  }
-                 customDoc.save(outputPath);
-                 log.info("Successfully saved custom PDF ({}-{}) to {}", startPage, endPage, outputPath);
-             }
-        } catch (IOException e) {
-            log.error("Error creating custom PDF from {} (range {}-{}) to {}", inputPath, startPage, endPage, outputPath, e);
-            throw e;
+        log.debug("Page count probe could not parse '{}'. Falling back to PDFBox.", pdf.getFileName());
+        try (PDDocument document = Loader.loadPDF(pdf.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+            return document.getNumberOfPages();
         }
     }
 
+
     private void convertPdfToBW(String inputPath, String outputPath) throws IOException, InterruptedException {
         log.debug("Converting PDF to B&W: {} -> {}", inputPath, outputPath);
-        ProcessBuilder processBuilder = new ProcessBuilder(
+        if ("pdfbox".equalsIgnoreCase(pdfEngine)) {
+            try {
+                grayscalePdfConverter.convert(new File(inputPath), new File(outputPath));
+                return;
+            } catch (GrayscalePdfConverter.UnsupportedContentException e) {
+                log.info("In-process B&W conversion not possible for {} ({}). Falling back to Ghostscript.", inputPath, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                log.warn("In-process B&W conversion failed for {}. Falling back to Ghostscript.", inputPath, e);
+            }
+            Files.deleteIfExists(Paths.get(outputPath));
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(ghostscriptGrayCommand(inputPath, outputPath));
+        converterPool.execute(ConverterPool.Tool.GHOSTSCRIPT, processBuilder, "Ghostscript PDF BW conversion", 60);
+    }
+
+    static List<String> ghostscriptGrayCommand(String inputPath, String outputPath) {
+        return List.of(
                 "gs", "-sDEVICE=pdfwrite", "-sColorConversionStrategy=Gray",
                 "-dProcessColorModel=/DeviceGray", "-dCompatibilityLevel=1.4",
                 "-dDetectDuplicateImages=true", "-dNOPAUSE", "-dBATCH", "-q",
                 "-o", outputPath, inputPath
         );
-        executeProcess(processBuilder, "Ghostscript PDF BW conversion", 60);
     }
 
     private void convertImageToBW(String inputPath, String outputPath) throws IOException, InterruptedException {
@@ -290,89 +426,10 @@ public class FileStorageService {
         ProcessBuilder processBuilder = new ProcessBuilder(
                 "convert", inputPath, "-colorspace", "Gray", "-strip", outputPath
         );
-         executeProcess(processBuilder, "ImageMagick Image BW conversion", 30);
-    }
-
-   private void executeProcess(ProcessBuilder processBuilder, String processName, int timeoutSeconds) throws IOException, InterruptedException {
-        log.info("Executing command: {} {}", processName, String.join(" ", processBuilder.command()));
-        Process process = null;
-        StringBuilder errorOutput = new StringBuilder(); // Capture stderr
-        try {
-            process = processBuilder.start();
-
-            StreamGobbler stdOutGobbler = new StreamGobbler(process.getInputStream(), log::debug);
-            // Capture stderr to the StringBuilder *and* log it
-            StreamGobbler stdErrGobbler = new StreamGobbler(process.getErrorStream(), line -> {
-                log.error("[{}] {}", processName, line); // Log each error line
-                errorOutput.append(line).append("\n"); // Append to builder
-            });
-            Thread outThread = new Thread(stdOutGobbler);
-            Thread errThread = new Thread(stdErrGobbler);
-            outThread.start();
-            errThread.start();
-
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            // Wait for stream gobblers to finish after process exit or timeout
-            outThread.join(5000); // Wait max 5s for stdout
-            errThread.join(5000); // Wait max 5s for stderr
-
-
-            if (!finished) {
-                log.error("{} timed out after {} seconds. Attempting to destroy.", processName, timeoutSeconds);
-                process.destroyForcibly();
-                throw new IOException(processName + " timed out after " + timeoutSeconds + " seconds.");
-            }
-
-            int exitCode = process.exitValue();
-            if (exitCode != 0) {
-                log.error("{} failed with exit code {}. Check logs for error output.", processName, exitCode);
-                String errorDetails = errorOutput.length() > 0 ? ": " + errorOutput.toString().trim() : ". Check logs for details.";
-                throw new IOException(processName + " failed with exit code " + exitCode + errorDetails);
-            }
-            log.info("{} completed successfully.", processName);
-
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("{} process was interrupted.", processName, e);
-             if (process != null) process.destroyForcibly();
-            throw new InterruptedException(processName + " interrupted.");
-        } catch (IOException e) {
-             // Log specific error if command not found
-             if (e.getMessage() != null && e.getMessage().contains("Cannot run program") && e.getMessage().contains("No such file or directory")) {
-                 log.error("!!! {} execution failed: Command ('{}') not found or not executable in PATH. Ensure Ghostscript/ImageMagick are installed and accessible. !!!", processName, processBuilder.command().get(0));
-             } else {
-                 log.error("{} execution failed.", processName, e);
-             }
-              if (process != null) process.destroyForcibly();
-             throw e;
-         }
+         converterPool.execute(ConverterPool.Tool.IMAGEMAGICK, processBuilder, "ImageMagick Image BW conversion", 30);
     }
 
     private boolean isImageExtension(String extension) {
         return ".jpg".equalsIgnoreCase(extension) || ".jpeg".equalsIgnoreCase(extension) || ".png".equalsIgnoreCase(extension);
     }
-
-    // Helper class to consume process output streams
-    private static class StreamGobbler implements Runnable {
-        private final InputStream inputStream;
-        private final java.util.function.Consumer<String> consumer;
-
-        public StreamGobbler(InputStream inputStream, java.util.function.Consumer<String> consumer) {
-            this.inputStream = inputStream;
-            this.consumer = consumer;
-        }
-
-        @Override
-        public void run() {
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(inputStream))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                     consumer.accept(line);
-                }
-            } catch (IOException e) {
-                 // Log exception during stream reading, but don't stop the main process usually
-                 log.warn("Error reading process stream: {}", e.getMessage());
-            }
-        }
-    }
-}
\ No newline at end of file
+}
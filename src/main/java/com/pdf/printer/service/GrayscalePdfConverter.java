@@ -0,0 +1,362 @@
+package com.pdf.printer.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process B&W conversion of PDFs with PDFBox.
+ * <p>
+ * Device/ICC/Cal RGB and CMYK colors in page, form and annotation content streams are rewritten to
+ * DeviceGray operators, and color image XObjects are replaced by grayscale copies. Anything this
+ * engine cannot convert faithfully (shadings, patterns, spot colors, inline images, color-key masks,
+ * encrypted files) raises {@link UnsupportedContentException} so the caller can fall back to Ghostscript.
+ */
+@Component
+public class GrayscalePdfConverter {
+
+    private static final Logger log = LoggerFactory.getLogger(GrayscalePdfConverter.class);
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Thrown when a document uses a feature the in-process engine does not convert.
+     */
+    public static class UnsupportedContentException extends Exception {
+        public UnsupportedContentException(String message) {
+            super(message);
+        }
+    }
+
+    public void convert(File input, File output) throws IOException, UnsupportedContentException {
+        long started = System.nanoTime();
+        try (PDDocument document = Loader.loadPDF(input, IOUtils.createTempFileOnlyStreamCache())) {
+            if (document.isEncrypted()) {
+                throw new UnsupportedContentException("Encrypted PDF");
+            }
+            Conversion conversion = new Conversion(document);
+            for (PDPage page : document.getPages()) {
+                conversion.convertPage(page);
+            }
+            document.save(output);
+            log.info("PDFBox grayscale conversion of {} done in {} ms ({} content streams, {} images rewritten)",
+                    input.getName(), (System.nanoTime() - started) / 1_000_000,
+                    conversion.rewrittenStreams, conversion.convertedImages.size());
+        }
+    }
+
+    /**
+     * Per-document state, so shared resources, forms and images are converted exactly once.
+     */
+    private static class Conversion {
+        private final PDDocument document;
+        private final Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<COSBase, PDImageXObject> convertedImages = new IdentityHashMap<>();
+        private int rewrittenStreams;
+
+        Conversion(PDDocument document) {
+            this.document = document;
+        }
+
+        void convertPage(PDPage page) throws IOException, UnsupportedContentException {
+            PDResources resources = page.getResources();
+            List<Object> tokens = parse(page);
+            List<Object> rewritten = rewriteColors(tokens, resources);
+            if (rewritten != null) {
+                PDStream contents = new PDStream(document);
+                try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+                    new ContentStreamWriter(out).writeTokens(rewritten);
+                }
+                page.setContents(contents);
+                rewrittenStreams++;
+            }
+            convertResources(resources);
+
+            for (PDAnnotation annotation : page.getAnnotations()) {
+                PDAppearanceStream appearance = annotation.getNormalAppearanceStream();
+                if (appearance != null) {
+                    convertForm(appearance);
+                }
+            }
+        }
+
+        private void convertForm(PDFormXObject form) throws IOException, UnsupportedContentException {
+            if (!visited.add(form.getCOSObject())) {
+                return;
+            }
+            List<Object> rewritten = rewriteColors(parse(form), form.getResources());
+            if (rewritten != null) {
+                COSStream stream = form.getCOSObject();
+                try (OutputStream out = stream.createOutputStream(COSName.FLATE_DECODE)) {
+                    new ContentStreamWriter(out).writeTokens(rewritten);
+                }
+                rewrittenStreams++;
+            }
+            convertResources(form.getResources());
+        }
+
+        private void convertResources(PDResources resources) throws IOException, UnsupportedContentException {
+            if (resources == null || !visited.add(resources.getCOSObject())) {
+                return;
+            }
+            if (resources.getShadingNames().iterator().hasNext() || resources.getPatternNames().iterator().hasNext()) {
+                throw new UnsupportedContentException("Shadings/patterns in resources");
+            }
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject instanceof PDFormXObject) {
+                    convertForm((PDFormXObject) xObject);
+                } else if (xObject instanceof PDImageXObject) {
+                    PDImageXObject gray = convertImage((PDImageXObject) xObject);
+                    if (gray != null) {
+                        resources.put(name, gray);
+                    }
+                }
+            }
+        }
+
+        private PDImageXObject convertImage(PDImageXObject image) throws IOException, UnsupportedContentException {
+            COSStream original = image.getCOSObject();
+            if (convertedImages.containsKey(original)) {
+                return convertedImages.get(original);
+            }
+            if (image.isStencil() || isGray(image.getColorSpace())) {
+                return null;
+            }
+            COSBase mask = original.getDictionaryObject(COSName.MASK);
+            if (mask instanceof COSArray) {
+                throw new UnsupportedContentException("Color-key masked image");
+            }
+
+            BufferedImage gray = toGray(image.getOpaqueImage(null, 1));
+            boolean wasJpeg = image.getSuffix() != null && image.getSuffix().equals("jpg");
+            PDImageXObject replacement = wasJpeg
+                    ? JPEGFactory.createFromImage(document, gray, JPEG_QUALITY)
+                    : LosslessFactory.createFromImage(document, gray);
+
+            // Soft masks and explicit masks are already single-channel; keep them as they are
+            COSDictionary target = replacement.getCOSObject();
+            COSBase softMask = original.getItem(COSName.SMASK);
+            if (softMask != null) {
+                target.setItem(COSName.SMASK, softMask);
+            }
+            if (mask != null) {
+                target.setItem(COSName.MASK, original.getItem(COSName.MASK));
+            }
+            target.setBoolean(COSName.INTERPOLATE, image.getInterpolate());
+            convertedImages.put(original, replacement);
+            return replacement;
+        }
+
+        private static List<Object> parse(PDContentStream contentStream) throws IOException {
+            return new PDFStreamParser(contentStream).parse();
+        }
+
+        /**
+         * Rewrites color operators to DeviceGray. Returns null if the stream has nothing to rewrite.
+         */
+        private List<Object> rewriteColors(List<Object> tokens, PDResources resources)
+                throws IOException, UnsupportedContentException {
+            List<Object> out = new ArrayList<>(tokens.size());
+            List<Object> operands = new ArrayList<>();
+            Deque<int[]> stateStack = new ArrayDeque<>();
+            int[] components = {1, 1}; // {stroking, non-stroking} component count of the original color space
+            boolean changed = false;
+
+            for (Object token : tokens) {
+                if (!(token instanceof Operator)) {
+                    operands.add(token);
+                    continue;
+                }
+                Operator operator = (Operator) token;
+                String op = operator.getName();
+                switch (op) {
+                    case "q":
+                        stateStack.push(components.clone());
+                        emit(out, operands, operator);
+                        break;
+                    case "Q":
+                        if (!stateStack.isEmpty()) {
+                            components = stateStack.pop();
+                        }
+                        emit(out, operands, operator);
+                        break;
+                    case "rg":
+                    case "RG":
+                        emitGray(out, operands, op.equals("RG"), rgbToGray(operands, 0));
+                        components[op.equals("RG") ? 0 : 1] = 3;
+                        changed = true;
+                        break;
+                    case "k":
+                    case "K":
+                        emitGray(out, operands, op.equals("K"), cmykToGray(operands, 0));
+                        components[op.equals("K") ? 0 : 1] = 4;
+                        changed = true;
+                        break;
+                    case "cs":
+                    case "CS": {
+                        int count = colorSpaceComponents(operands, resources);
+                        components[op.equals("CS") ? 0 : 1] = count;
+                        if (count != 1 || !COSName.DEVICEGRAY.equals(operands.get(0))) {
+                            operands.clear();
+                            operands.add(COSName.DEVICEGRAY);
+                            changed = true;
+                        }
+                        emit(out, operands, operator);
+                        break;
+                    }
+                    case "sc":
+                    case "scn":
+                    case "SC":
+                    case "SCN": {
+                        int count = components[op.startsWith("S") ? 0 : 1];
+                        if (count == 1) {
+                            emit(out, operands, operator);
+                            break;
+                        }
+                        float gray = count == 3 ? rgbToGray(operands, 0) : cmykToGray(operands, 0);
+                        operands.clear();
+                        operands.add(new COSFloat(gray));
+                        emit(out, operands, operator);
+                        changed = true;
+                        break;
+                    }
+                    case "sh":
+                        throw new UnsupportedContentException("Shading operator");
+                    case "BI":
+                        throw new UnsupportedContentException("Inline image");
+                    default:
+                        emit(out, operands, operator);
+                }
+            }
+            out.addAll(operands);
+            return changed ? out : null;
+        }
+
+        private static int colorSpaceComponents(List<Object> operands, PDResources resources)
+                throws IOException, UnsupportedContentException {
+            if (operands.size() != 1 || !(operands.get(0) instanceof COSName)) {
+                throw new UnsupportedContentException("Malformed color space operator");
+            }
+            COSName name = (COSName) operands.get(0);
+            if (COSName.DEVICEGRAY.equals(name)) return 1;
+            if (COSName.DEVICERGB.equals(name)) return 3;
+            if (COSName.DEVICECMYK.equals(name)) return 4;
+            PDColorSpace colorSpace = resources != null ? resources.getColorSpace(name) : null;
+            if (colorSpace instanceof PDDeviceGray || colorSpace instanceof PDCalGray) return 1;
+            if (colorSpace instanceof PDDeviceRGB || colorSpace instanceof PDCalRGB) return 3;
+            if (colorSpace instanceof PDDeviceCMYK) return 4;
+            if (colorSpace instanceof PDICCBased) {
+                int count = colorSpace.getNumberOfComponents();
+                if (count == 1 || count == 3 || count == 4) return count;
+            }
+            throw new UnsupportedContentException("Color space " + name.getName() + " ("
+                    + (colorSpace != null ? colorSpace.getName() : "unknown") + ")");
+        }
+
+        private static boolean isGray(PDColorSpace colorSpace) {
+            return colorSpace instanceof PDDeviceGray || colorSpace instanceof PDCalGray
+                    || (colorSpace instanceof PDICCBased && colorSpace.getNumberOfComponents() == 1);
+        }
+
+        private static void emit(List<Object> out, List<Object> operands, Operator operator) {
+            out.addAll(operands);
+            out.add(operator);
+            operands.clear();
+        }
+
+        private static void emitGray(List<Object> out, List<Object> operands, boolean stroking, float gray) {
+            operands.clear();
+            out.add(new COSFloat(gray));
+            out.add(Operator.getOperator(stroking ? "G" : "g"));
+        }
+
+        private static float rgbToGray(List<Object> operands, int offset) throws UnsupportedContentException {
+            return clamp(0.299f * number(operands, offset) + 0.587f * number(operands, offset + 1)
+                    + 0.114f * number(operands, offset + 2));
+        }
+
+        private static float cmykToGray(List<Object> operands, int offset) throws UnsupportedContentException {
+            float ink = 0.3f * number(operands, offset) + 0.59f * number(operands, offset + 1)
+                    + 0.11f * number(operands, offset + 2) + number(operands, offset + 3);
+            return clamp(1f - ink);
+        }
+
+        private static float number(List<Object> operands, int index) throws UnsupportedContentException {
+            if (index >= operands.size() || !(operands.get(index) instanceof COSNumber)) {
+                // Pattern names after scn, or malformed operands
+                throw new UnsupportedContentException("Non-numeric color operand");
+            }
+            return ((COSNumber) operands.get(index)).floatValue();
+        }
+
+        private static float clamp(float value) {
+            return Math.max(0f, Math.min(1f, value));
+        }
+
+        private static BufferedImage toGray(BufferedImage source) {
+            int width = source.getWidth();
+            int height = source.getHeight();
+            BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            WritableRaster raster = gray.getRaster();
+            int[] rgbRow = new int[width];
+            int[] grayRow = new int[width];
+            for (int y = 0; y < height; y++) {
+                source.getRGB(0, y, width, 1, rgbRow, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int rgb = rgbRow[x];
+                    int r = (rgb >> 16) & 0xFF;
+                    int g = (rgb >> 8) & 0xFF;
+                    int b = rgb & 0xFF;
+                    grayRow[x] = (299 * r + 587 * g + 114 * b) / 1000;
+                }
+                raster.setSamples(0, y, width, 1, 0, grayRow);
+            }
+            return gray;
+        }
+    }
+}
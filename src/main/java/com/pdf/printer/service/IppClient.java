@@ -0,0 +1,190 @@
+package com.pdf.printer.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Just enough IPP (RFC 8010/8011) to submit a document to a network printer: one Print-Job
+ * request over HTTP(S). The request is the encoded attributes followed by the document, streamed
+ * from disk with a known Content-Length, so the document is never held in memory. Copies, sides
+ * and colour go as job template attributes; the printer does the repeating.
+ * <p>
+ * {@code ipp://} and {@code ipps://} URIs are sent to {@code http://} / {@code https://}, port 631
+ * unless given. The underlying HttpClient keeps connections to a printer open between jobs.
+ */
+public class IppClient {
+
+    private static final int PRINT_JOB = 0x0002;
+
+    // Delimiter and value tags (RFC 8010 section 3.5)
+    private static final int OPERATION_ATTRIBUTES = 0x01;
+    private static final int JOB_ATTRIBUTES = 0x02;
+    private static final int END_OF_ATTRIBUTES = 0x03;
+    private static final int INTEGER = 0x21;
+    private static final int NAME_WITHOUT_LANGUAGE = 0x42;
+    private static final int KEYWORD = 0x44;
+    private static final int URI_TAG = 0x45;
+    private static final int CHARSET = 0x47;
+    private static final int NATURAL_LANGUAGE = 0x48;
+    private static final int MIME_MEDIA_TYPE = 0x49;
+
+    /** What to print and how; {@code duplex} means two-sided, bound on the long edge. */
+    public record JobTemplate(String jobName, String documentFormat, int copies, boolean duplex, boolean color) { }
+
+    /** The printer answered, but not with a successful status. */
+    public static class IppException extends IOException {
+        private final int statusCode;
+
+        IppException(int statusCode, String message) {
+            super(String.format("IPP status 0x%04x%s", statusCode, message == null ? "" : ": " + message));
+            this.statusCode = statusCode;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+    }
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final String requestingUser;
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    public IppClient(Duration connectTimeout, Duration requestTimeout, String requestingUser) {
+        // Printers speak HTTP/1.1 only; without this the first request would offer an h2c upgrade
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.requestingUser = requestingUser;
+    }
+
+    /**
+     * Submits {@code document} as one print job.
+     *
+     * @return the job id the printer assigned, or -1 if it did not say
+     * @throws IppException if the printer refused the job
+     */
+    public int printJob(URI printerUri, Path document, JobTemplate template) throws IOException, InterruptedException {
+        int requestId = requestIds.incrementAndGet();
+        byte[] attributes = encodePrintJob(printerUri, requestId, template);
+        HttpRequest request = HttpRequest.newBuilder(httpUri(printerUri))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/ipp")
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(attributes),
+                        HttpRequest.BodyPublishers.ofFile(document)))
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Printer " + printerUri + " answered HTTP " + response.statusCode());
+        }
+        return jobId(response.body());
+    }
+
+    private byte[] encodePrintJob(URI printerUri, int requestId, JobTemplate template) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(0x0101); // IPP/1.1, which every IPP printer accepts
+        out.writeShort(PRINT_JOB);
+        out.writeInt(requestId);
+
+        out.writeByte(OPERATION_ATTRIBUTES);
+        // These two must come first, in this order
+        attribute(out, CHARSET, "attributes-charset", "utf-8");
+        attribute(out, NATURAL_LANGUAGE, "attributes-natural-language", "en");
+        attribute(out, URI_TAG, "printer-uri", printerUri.toString());
+        attribute(out, NAME_WITHOUT_LANGUAGE, "requesting-user-name", requestingUser);
+        attribute(out, NAME_WITHOUT_LANGUAGE, "job-name", template.jobName());
+        attribute(out, MIME_MEDIA_TYPE, "document-format", template.documentFormat());
+
+        out.writeByte(JOB_ATTRIBUTES);
+        attribute(out, INTEGER, "copies", ByteBuffer.allocate(4).putInt(Math.max(1, template.copies())).array());
+        attribute(out, KEYWORD, "sides", template.duplex() ? "two-sided-long-edge" : "one-sided");
+        attribute(out, KEYWORD, "print-color-mode", template.color() ? "color" : "monochrome");
+
+        out.writeByte(END_OF_ATTRIBUTES);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void attribute(DataOutputStream out, int tag, String name, String value) throws IOException {
+        attribute(out, tag, name, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void attribute(DataOutputStream out, int tag, String name, byte[] value) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        out.writeByte(tag);
+        out.writeShort(nameBytes.length);
+        out.write(nameBytes);
+        out.writeShort(value.length);
+        out.write(value);
+    }
+
+    /**
+     * Reads the status and the job id out of a Print-Job response. Status codes below 0x0100 are
+     * successes, including "ok, but some attributes were ignored or substituted".
+     */
+    static int jobId(byte[] response) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(response));
+        in.readShort(); // version
+        int status = in.readUnsignedShort();
+        in.readInt(); // request id
+        int group = 0;
+        int jobId = -1;
+        String statusMessage = null;
+        try {
+            while (true) {
+                int tag = in.readUnsignedByte();
+                if (tag == END_OF_ATTRIBUTES) {
+                    break;
+                }
+                if (tag < 0x10) {
+                    group = tag;
+                    continue;
+                }
+                String name = new String(in.readNBytes(in.readUnsignedShort()), StandardCharsets.US_ASCII);
+                byte[] value = in.readNBytes(in.readUnsignedShort());
+                if (group == JOB_ATTRIBUTES && tag == INTEGER && name.equals("job-id") && value.length == 4) {
+                    jobId = ByteBuffer.wrap(value).getInt();
+                } else if (group == OPERATION_ATTRIBUTES && name.equals("status-message")) {
+                    statusMessage = new String(value, StandardCharsets.UTF_8);
+                }
+            }
+        } catch (EOFException e) {
+            // Truncated attributes; the status is what matters
+        }
+        if (status >= 0x0100) {
+            throw new IppException(status, statusMessage);
+        }
+        return jobId;
+    }
+
+    static URI httpUri(URI printerUri) {
+        String scheme = printerUri.getScheme().toLowerCase();
+        if (!scheme.equals("ipp") && !scheme.equals("ipps")) {
+            return printerUri;
+        }
+        try {
+            return new URI(scheme.equals("ipps") ? "https" : "http", printerUri.getUserInfo(), printerUri.getHost(),
+                    printerUri.getPort() == -1 ? 631 : printerUri.getPort(), printerUri.getPath(), printerUri.getQuery(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Bad printer URI " + printerUri, e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.pdf.printer.service;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * Delivers an order straight to a shop's LAN printer over IPP, for shops with an
+ * {@link Shop#getIppUri() IPP URI}: no mail relay or print cloud in between, so the first page
+ * comes out seconds after payment. Each item is its own print job, submitted in order so the
+ * stack comes out in the order the customer listed the files.
+ */
+@Component
+@Order(1)
+public class IppDeliveryChannel implements PrintDeliveryChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(IppDeliveryChannel.class);
+
+    private final Path uploadDir;
+    private final IppClient client;
+
+    public IppDeliveryChannel(@Value("${file.upload-dir}") String uploadDir,
+                              @Value("${print.ipp.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+                              @Value("${print.ipp.request-timeout-seconds:300}") long requestTimeoutSeconds,
+                              @Value("${print.ipp.requesting-user:kiosk}") String requestingUser) {
+        this.uploadDir = Paths.get(uploadDir);
+        this.client = new IppClient(Duration.ofSeconds(connectTimeoutSeconds), Duration.ofSeconds(requestTimeoutSeconds),
+                requestingUser);
+    }
+
+    @Override
+    public String name() {
+        return "ipp";
+    }
+
+    @Override
+    public boolean supports(ShopRegistry.ShopInfo shop) {
+        return shop.ippUri() != null && !shop.ippUri().isBlank();
+    }
+
+    /**
+     * One part per item. A failed item does not stop the ones after it; the job is retried for
+     * the failed ones only. A permanent failure is reported ahead of any earlier transient one.
+     */
+    @Override
+    public Outcome deliver(ShopRegistry.ShopInfo shop, List<FileOrderItem> items, String orderReference,
+                           IntFunction<Set<Integer>> delivered) throws Exception {
+        URI printerUri = URI.create(shop.ippUri());
+        Set<Integer> alreadyPrinted = delivered.apply(items.size());
+        Set<Integer> printed = new TreeSet<>();
+        Exception failure = null;
+        for (int part = 1; part <= items.size(); part++) {
+            if (alreadyPrinted.contains(part)) {
+                continue;
+            }
+            FileOrderItem item = items.get(part - 1);
+            try {
+                Path file = uploadDir.resolve(item.getFileName());
+                if (!Files.exists(file)) {
+                    throw new FileNotFoundException("Source file not found: " + item.getFileName());
+                }
+                IppClient.JobTemplate template = new IppClient.JobTemplate(orderReference + " - " + item.getFileName(),
+                        documentFormat(item.getFileName()), item.getNumberOfCopies(), item.isDuplex(), item.getPrintType() != 0);
+                int jobId = client.printJob(printerUri, file, template);
+                printed.add(part);
+                log.info("Order {} item {}/{} ({}, {} copies{}) submitted to {} as job {}", orderReference, part,
+                        items.size(), item.getFileName(), template.copies(), template.duplex() ? ", duplex" : "",
+                        printerUri, jobId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Outcome(items.size(), printed, e);
+            } catch (Exception e) {
+                log.error("Order {} item {}/{} ({}) could not be submitted to {}: {}", orderReference, part, items.size(),
+                        item.getFileName(), printerUri, e.getMessage());
+                if (failure == null || isPermanent(e) && !isPermanent(failure)) {
+                    failure = e;
+                }
+            }
+        }
+        return new Outcome(items.size(), printed, failure);
+    }
+
+    /**
+     * IPP client-error statuses (0x0400-0x04FF: bad request, document format not supported, ...)
+     * mean the printer will refuse the job again; server errors and I/O failures are retried.
+     */
+    @Override
+    public boolean isPermanent(Exception failure) {
+        return failure instanceof IppClient.IppException ipp && ipp.statusCode() >= 0x0400 && ipp.statusCode() <= 0x04FF;
+    }
+
+    // What the kiosk accepts for upload; anything else is left to the printer to sniff
+    static String documentFormat(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".pdf")) {
+            return "application/pdf";
+        }
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+        if (lower.endsWith(".png")) {
+            return "image/png";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,123 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import jakarta.activation.DataSource;
+
+/**
+ * An attachment read straight from a memory-mapped file, a window at a time. Jakarta Mail pulls
+ * the bytes through its base64 encoder while writing to the SMTP socket, so the file never has to
+ * fit on the heap: the mapped pages live in the OS page cache, and the only heap buffers are the
+ * encoder's and the socket's.
+ * <p>
+ * Each {@link #getInputStream()} opens its own channel; mappings are released when they become
+ * unreachable.
+ */
+public class MappedFileDataSource implements DataSource {
+
+    // Mapped a window at a time, so files over 2 GB work and address space use stays small
+    private static final long WINDOW = 64L * 1024 * 1024;
+
+    private final Path path;
+    private final String contentType;
+
+    public MappedFileDataSource(Path path, String contentType) {
+        this.path = path;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new MappedInputStream(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("Read-only data source: " + path);
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    private static final class MappedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        // The current window with bytes left in it, mapping the next one when needed; null at end of file
+        private MappedByteBuffer window() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return window;
+            }
+            long next = window == null ? 0 : windowStart + window.capacity();
+            if (next >= size) {
+                return null;
+            }
+            windowStart = next;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW, size - next));
+            return window;
+        }
+
+        @Override
+        public int read() throws IOException {
+            MappedByteBuffer buffer = window();
+            return buffer == null ? -1 : buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = window();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            MappedByteBuffer buffer = window();
+            if (buffer == null || n <= 0) {
+                return 0;
+            }
+            int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return window == null ? 0 : window.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+}
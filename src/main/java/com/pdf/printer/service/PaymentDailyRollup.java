@@ -0,0 +1,43 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Payments per shop and day, kept up to date by {@link PaymentService#recordPayment} so dashboard
+ * totals read at most one row per day instead of summing raw payments.
+ */
+@Table(name = "payment_daily_rollup")
+@IdClass(PaymentDailyRollup.Key.class)
+@Data
+@NoArgsConstructor
+@Entity
+public class PaymentDailyRollup {
+
+    @Id
+    @Column(name = "phone_number", nullable = false, length = 10)
+    private String phoneNumber;
+
+    @Id
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "payment_count", nullable = false)
+    private long paymentCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String phoneNumber;
+        private LocalDate rollupDate;
+    }
+}
@@ -10,7 +10,10 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.LocalDateTime; 
 
-@Table(name = "payment_details") 
+@Table(name = "payment_details", indexes = {
+        // Dashboard queries filter on phone and a payment_date range
+        @Index(name = "ix_payment_details_phone_date", columnList = "phone_number, payment_date")
+})
 @Data
 @NoArgsConstructor 
 @AllArgsConstructor
@@ -0,0 +1,12 @@
+package com.pdf.printer.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Published by {@link PaymentService#recordPayment} for a newly stored payment.
+ */
+public record PaymentRecordedEvent(String phoneNumber, String paymentId, LocalDate paymentDate,
+                                   LocalTime paymentTime, BigDecimal amount) {
+}
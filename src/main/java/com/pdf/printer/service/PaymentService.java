@@ -1,54 +1,177 @@
 package com.pdf.printer.service;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import com.pdf.printer.dto.PaymentPage;
+import com.pdf.printer.dto.PaymentRow;
+import com.pdf.printer.repo.DataMigrationRepository;
+import com.pdf.printer.repo.PaymentDailyRollupRepository;
 import com.pdf.printer.repo.PaymentDetailRepository;
 import org.springframework.transaction.annotation.Transactional; // Import Transactional
 
 @Service
 public class PaymentService {
 	private static final Logger log=LoggerFactory.getLogger(PaymentService.class);
+	private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+	private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+	private static final String ROLLUP_BACKFILL = "payment_daily_rollup_backfill";
 	
     
     private final PaymentDetailRepository paymentDetailRepository;
+    private final PaymentDailyRollupRepository rollupRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final DashboardCache dashboardCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public PaymentService(PaymentDetailRepository paymentDetailRepository) {
+    public PaymentService(PaymentDetailRepository paymentDetailRepository, PaymentDailyRollupRepository rollupRepository,
+                          DataMigrationRepository dataMigrationRepository, DashboardCache dashboardCache,
+                          ApplicationEventPublisher eventPublisher) {
         this.paymentDetailRepository = paymentDetailRepository;
+        this.rollupRepository = rollupRepository;
+        this.dataMigrationRepository = dataMigrationRepository;
+        this.dashboardCache = dashboardCache;
+        this.eventPublisher = eventPublisher;
     }
 
-    // Existing methods...
+    // Payment dates are recorded in IST, so "today" and "this month" are IST as well.
+    // Totals come from the daily rollup (one row per day); listings still read the payments.
+    // Dashboard reads go through DashboardCache, which recordPayment invalidates per phone.
 
     public List<PaymentDetail> getMonthlyPayments(String phoneNumber) {
-        return paymentDetailRepository.findByPhoneNumberCurrentMonth(phoneNumber);
+        return getPayments(phoneNumber, dateRange("MONTH", null, null));
     }
 
     public Long getMonthlyTotal(String phoneNumber) {
-        return paymentDetailRepository.findMonthlyTotal(phoneNumber);
+        return getTotal(phoneNumber, dateRange("MONTH", null, null));
     }
 
     public List<PaymentDetail> getDailyPayments(String phoneNumber) {
-        return paymentDetailRepository.findTodayPayments(phoneNumber);
+        return getPayments(phoneNumber, dateRange("DAY", null, null));
     }
 
     public Long getDailyTotal(String phoneNumber) {
-        return paymentDetailRepository.findTodayTotal(phoneNumber);
+        return getTotal(phoneNumber, dateRange("DAY", null, null));
     }
 
+    // start and end are inclusive
     public List<PaymentDetail> getPaymentsByDateRange(String phoneNumber, LocalDate start, LocalDate end) {
-        return paymentDetailRepository.findByDateRange(phoneNumber, start, end);
+        return getPayments(phoneNumber, dateRange("CUSTOM", start, end));
     }
 
     public Long getTotalByDateRange(String phoneNumber, LocalDate start, LocalDate end) {
-        return paymentDetailRepository.findTotalByDateRange(phoneNumber, start, end);
+        return getTotal(phoneNumber, dateRange("CUSTOM", start, end));
+    }
+
+    public List<PaymentDetail> getPayments(String phoneNumber, DateRange range) {
+        return dashboardCache.get(phoneNumber, DashboardCache.Kind.PAYMENTS, range, 0, () -> List.copyOf(
+                paymentDetailRepository.findByPhoneNumberAndDateRange(phoneNumber, range.from(), range.toExclusive())));
+    }
+
+    /** Half-open [from, toExclusive) range of payment dates. */
+    public record DateRange(LocalDate from, LocalDate toExclusive) {
+    }
+
+    /**
+     * The range for a dashboard filter: DAY, CUSTOM (start and end inclusive) or MONTH for anything else.
+     */
+    public DateRange dateRange(String filterType, LocalDate start, LocalDate end) {
+        LocalDate today = LocalDate.now(IST);
+        return switch (filterType) {
+            case "DAY" -> new DateRange(today, today.plusDays(1));
+            case "CUSTOM" -> new DateRange(start, end.plusDays(1));
+            default -> new DateRange(today.withDayOfMonth(1), today.withDayOfMonth(1).plusMonths(1));
+        };
+    }
+
+    /**
+     * Up to {@code limit} payments in the range, newest first, starting after {@code cursor}
+     * (null for the first page). Reads one row more than asked to know whether there is a next page.
+     * First pages are what a dashboard refresh asks for, so only those are cached.
+     */
+    public PaymentPage getPaymentPage(String phoneNumber, DateRange range, String cursor, int limit) {
+        Pageable page = PageRequest.of(0, limit + 1);
+        if (cursor == null || cursor.isBlank()) {
+            return dashboardCache.get(phoneNumber, DashboardCache.Kind.FIRST_PAGE, range, limit, () -> toPage(
+                    paymentDetailRepository.findFirstPage(phoneNumber, range.from(), range.toExclusive(), page), limit));
+        }
+        PaymentPage.Cursor after = PaymentPage.Cursor.decode(cursor);
+        return toPage(paymentDetailRepository.findPageAfter(phoneNumber, range.from(), range.toExclusive(),
+                after.paymentDate(), after.id(), page), limit);
+    }
+
+    private static PaymentPage toPage(List<PaymentRow> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new PaymentPage(List.copyOf(rows), null);
+        }
+        List<PaymentRow> payments = List.copyOf(rows.subList(0, limit));
+        return new PaymentPage(payments, PaymentPage.Cursor.after(payments.get(limit - 1)).encode());
+    }
+
+    /**
+     * Writes the range's payments to {@code out} as CSV, oldest first. Rows are streamed from the
+     * database and written as they arrive, so memory use does not depend on the size of the range.
+     * Runs in a read-only transaction because the result set stays open while writing.
+     */
+    @Transactional(readOnly = true)
+    public long writePaymentsCsv(String phoneNumber, DateRange range, Writer out) throws IOException {
+        out.write("Date,Time,Payment ID,Amount\r\n");
+        long rows = 0;
+        try (Stream<PaymentRow> payments = paymentDetailRepository.streamByPhoneNumberAndDateRange(
+                phoneNumber, range.from(), range.toExclusive())) {
+            Iterator<PaymentRow> iterator = payments.iterator();
+            while (iterator.hasNext()) {
+                PaymentRow payment = iterator.next();
+                out.write(payment.paymentDate().toString());
+                out.write(',');
+                out.write(CSV_TIME.format(payment.paymentTime()));
+                out.write(',');
+                out.write(csvField(payment.paymentId()));
+                out.write(',');
+                out.write(payment.amount().toPlainString());
+                out.write("\r\n");
+                rows++;
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public Long getTotal(String phoneNumber, DateRange range) {
+        return dashboardCache.get(phoneNumber, DashboardCache.Kind.TOTAL, range, 0,
+                () -> rollupRepository.findTotalByPhoneNumberAndDateRange(phoneNumber, range.from(), range.toExclusive()));
+    }
+
+    public long getPaymentCount(String phoneNumber, DateRange range) {
+        return dashboardCache.<Long>get(phoneNumber, DashboardCache.Kind.COUNT, range, 0,
+                () -> rollupRepository.findCountByPhoneNumberAndDateRange(phoneNumber, range.from(), range.toExclusive()));
     }
 
     @Transactional 
@@ -56,10 +179,11 @@ public class PaymentService {
                                         BigDecimal amount, String phone) {
 
        
+        // Idempotent: webhook events are delivered at least once, so a repeat returns the stored row
         Optional<PaymentDetail> existingPayment = paymentDetailRepository.findByPaymentId(paymentId);
         if (existingPayment.isPresent()) {
-           
-            throw new IllegalArgumentException("Payment with ID '" + paymentId + "' already exists.");
+            log.info("Payment with ID '{}' already recorded; skipping insert.", paymentId);
+            return existingPayment.get();
         }
 
         // Create a new PaymentDetail entity instance
@@ -74,12 +198,33 @@ public class PaymentService {
 
         // Save the entity using the repository
         PaymentDetail savedPayment = paymentDetailRepository.save(newPayment);
+        // Same transaction as the insert, so the rollup never counts a payment that was rolled back
+        rollupRepository.addPayment(phone, date, amount);
+        dashboardCache.invalidate(phone);
+        // Delivered to PaymentUpdatePublisher once the transaction commits
+        eventPublisher.publishEvent(new PaymentRecordedEvent(phone, paymentId, date, time, amount));
 
         // Log or perform other actions if needed
         log.info("Saved Payment Detail: " + savedPayment.getId() + " | Payment ID: " + savedPayment.getPaymentId());
         log.info("savedPayment details are "+savedPayment);
         return savedPayment;
     }
+    /**
+     * Fills the rollup from the payments recorded before it existed, once per database. Completion
+     * is recorded in {@link DataMigration}, in the same transaction; the backfill itself recomputes
+     * each shop-day, so a run that is interrupted or repeated cannot double count.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillDailyRollup() {
+        if (dataMigrationRepository.existsById(ROLLUP_BACKFILL)) {
+            return;
+        }
+        int rows = rollupRepository.backfillFromPayments();
+        dataMigrationRepository.markCompleted(ROLLUP_BACKFILL, LocalDateTime.now());
+        log.info("Backfilled payment_daily_rollup from payment_details ({} rows affected)", rows);
+    }
+
     public Optional<PaymentDetail> findByPaymentId(String paymentId) {
         return paymentDetailRepository.findByPaymentId(paymentId);
     }
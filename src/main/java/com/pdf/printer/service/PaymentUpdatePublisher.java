@@ -0,0 +1,73 @@
+package com.pdf.printer.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pdf.printer.config.PaymentWebSocketHandler;
+import com.pdf.printer.repo.PaymentDailyRollupRepository;
+
+/**
+ * Pushes each committed payment to the WebSocket subscribers of its shop: its status to kiosks, and
+ * its amount with the shop's day and month totals after it to signed-in owners. The totals are
+ * absolute, so a client that missed an update is correct again with the next one.
+ */
+@Component
+public class PaymentUpdatePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentUpdatePublisher.class);
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final PaymentWebSocketHandler webSocketHandler;
+    private final ShopRegistry shopRegistry;
+    private final PaymentDailyRollupRepository rollupRepository;
+
+    public PaymentUpdatePublisher(PaymentWebSocketHandler webSocketHandler, ShopRegistry shopRegistry,
+                                  PaymentDailyRollupRepository rollupRepository) {
+        this.webSocketHandler = webSocketHandler;
+        this.shopRegistry = shopRegistry;
+        this.rollupRepository = rollupRepository;
+    }
+
+    // After commit, so a rolled-back payment is never announced; the totals are read in a new
+    // transaction because the payment's own one is already finished
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onPaymentRecorded(PaymentRecordedEvent event) {
+        ShopRegistry.ShopInfo shop = shopRegistry.findByPhone(event.phoneNumber()).orElse(null);
+        if (shop == null) {
+            log.warn("Payment {} belongs to no registered shop ({}); nothing to push", event.paymentId(), event.phoneNumber());
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now(IST);
+            LocalDate firstOfMonth = today.withDayOfMonth(1);
+            String phone = event.phoneNumber();
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("type", "payment");
+            status.put("shopId", shop.id());
+            status.put("paymentId", event.paymentId());
+            status.put("status", "captured");
+            status.put("paymentDate", event.paymentDate().toString());
+            status.put("paymentTime", event.paymentTime().toString());
+            Map<String, Object> update = new LinkedHashMap<>(status);
+            update.put("amount", event.amount());
+            update.put("dailyTotal", rollupRepository.findTotalByPhoneNumberAndDateRange(phone, today, today.plusDays(1)));
+            update.put("dailyCount", rollupRepository.findCountByPhoneNumberAndDateRange(phone, today, today.plusDays(1)));
+            update.put("monthlyTotal", rollupRepository.findTotalByPhoneNumberAndDateRange(phone, firstOfMonth, firstOfMonth.plusMonths(1)));
+            update.put("monthlyCount", rollupRepository.findCountByPhoneNumberAndDateRange(phone, firstOfMonth, firstOfMonth.plusMonths(1)));
+            webSocketHandler.publish(shop.id(), status, update);
+        } catch (Exception e) {
+            // Live updates are best effort; the payment itself is already stored
+            log.error("Could not push payment {} to shop {}: {}", event.paymentId(), shop.id(), e.getMessage(), e);
+        }
+    }
+}
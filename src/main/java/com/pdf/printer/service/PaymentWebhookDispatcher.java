@@ -0,0 +1,189 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * Fulfills queued {@code payment.captured} events in the background: records the payment, marks
+ * the order paid and queues the print job (delivered by {@link PrintJobWorker}, which releases the
+ * files afterwards), all in one transaction. Delivery is at-least-once; every step is safe to repeat (the payment
+ * insert and the print job are unique per payment and order), so a retry only redoes what is missing.
+ */
+@Component
+public class PaymentWebhookDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentWebhookDispatcher.class);
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final WebhookOutbox outbox;
+    private final PrintOrderService printOrderService;
+    private final PaymentService paymentService;
+    private final PrintFulfillmentService fulfillmentService;
+    private final PrintJobQueue printJobQueue;
+    private final ShopRegistry shopRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int batchSize;
+
+    public PaymentWebhookDispatcher(WebhookOutbox outbox, PrintOrderService printOrderService,
+                                    PaymentService paymentService, PrintFulfillmentService fulfillmentService,
+                                    PrintJobQueue printJobQueue, ShopRegistry shopRegistry,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${print.webhook.batch-size:20}") int batchSize) {
+        this.outbox = outbox;
+        this.printOrderService = printOrderService;
+        this.paymentService = paymentService;
+        this.fulfillmentService = fulfillmentService;
+        this.printJobQueue = printJobQueue;
+        this.shopRegistry = shopRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${print.webhook.dispatch-interval-ms:2000}")
+    public void dispatchDueEvents() {
+        for (Long eventId : outbox.findDue(batchSize)) {
+            outbox.claim(eventId).ifPresent(this::dispatch);
+        }
+    }
+
+    private void dispatch(WebhookEvent event) {
+        try {
+            process(event);
+            outbox.markDone(event.getId());
+        } catch (UnprocessableEventException e) {
+            outbox.recordFailure(event.getId(), e.getMessage(), true);
+        } catch (Exception e) {
+            log.error("Error processing webhook event {} for payment {}", event.getId(), event.getPaymentId(), e);
+            outbox.recordFailure(event.getId(), e.getClass().getSimpleName() + ": " + e.getMessage(), false);
+        }
+    }
+
+    void process(WebhookEvent event) throws Exception {
+        JsonNode entity = objectMapper.readTree(event.getPayload()).path("payload").path("payment").path("entity");
+        String orderId = event.getOrderId();
+        String paymentId = event.getPaymentId();
+        log.info("Processing 'payment.captured' for Order ID: {}, Payment ID: {} (attempt {})", orderId, paymentId, event.getAttempts());
+
+        // Items were stored when the order was initiated; one indexed lookup by order id
+        Optional<PrintOrder> printOrder = printOrderService.findByOrderId(orderId);
+        List<FileOrderItem> itemsToProcess;
+        if (printOrder.isPresent()) {
+            itemsToProcess = PrintOrderService.toFileOrderItems(printOrder.get());
+            log.info("Loaded {} items of stored order {}", itemsToProcess.size(), orderId);
+        } else {
+            // Orders initiated before the order store existed still carry their items in the notes
+            log.warn("No stored order for order_id {}. Falling back to items in payment notes.", orderId);
+            JsonNode notes = entity.path("notes");
+            if (!notes.hasNonNull("items")) {
+                throw new UnprocessableEventException("Order " + orderId + " is unknown and its notes carry no 'items'. Manual processing needed.");
+            }
+            try {
+                itemsToProcess = parseLegacyNoteItems(notes.path("items").asText(), orderId);
+            } catch (IOException e) {
+                throw new UnprocessableEventException("Could not parse 'items' from the notes of order " + orderId + ": " + e.getMessage());
+            }
+        }
+        if (itemsToProcess.isEmpty()) {
+            log.warn("Webhook Warning: No valid items found to process for order_id: {}", orderId);
+            return;
+        }
+
+        BigDecimal bigDecimalAmount = new BigDecimal(entity.path("amount").asText("0"))
+                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        ZonedDateTime paidAt = resolvePaymentTime(entity, printOrder.orElse(null));
+        log.info("Payment date (IST): {}, time (IST): {}", paidAt.toLocalDate(), paidAt.toLocalTime());
+        String phone = shopRegistry.getPhoneById(itemsToProcess.get(0).getPrinterId());
+        // The job only becomes visible to PrintJobWorker together with the PAID order, so the
+        // worker's release is never declined because the order still looks unpaid
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentService.recordPayment(paymentId, paidAt.toLocalDate(), paidAt.toLocalTime(), bigDecimalAmount, phone);
+            printOrderService.markPaid(orderId, paymentId);
+            if (event.getEmailSentAt() == null) {
+                printJobQueue.enqueue(orderId, itemsToProcess);
+            }
+        });
+
+        if (event.getEmailSentAt() != null) {
+            // Emailed directly before the print job queue existed; only the release was left to do
+            log.info("Print email for order {} already sent at {}; releasing its files", orderId, event.getEmailSentAt());
+            fulfillmentService.releaseFiles(itemsToProcess, orderId);
+        }
+    }
+
+    /**
+     * Items of an order initiated before the order store existed, as serialized into its notes.
+     */
+    private List<FileOrderItem> parseLegacyNoteItems(String itemsJsonString, String orderId) throws IOException {
+        List<FileOrderItem> items = new ArrayList<>();
+        JsonNode itemsJsonArray = objectMapper.readTree(itemsJsonString);
+        for (int i = 0; i < itemsJsonArray.size(); i++) {
+            JsonNode itemJson = itemsJsonArray.get(i);
+            FileOrderItem item = new FileOrderItem();
+            item.setFileName(itemJson.hasNonNull("fName") ? itemJson.get("fName").asText() : null);
+            item.setPageCount(itemJson.path("pCount").asInt(-1));
+            item.setPrintType(itemJson.path("pType").asInt(-1));
+            item.setNumberOfCopies(itemJson.path("copies").asInt(-1));
+            if (item.getFileName() == null || item.getPageCount() == -1 || item.getPrintType() == -1
+                    || item.getNumberOfCopies() == -1) {
+                log.error("Webhook Error: Incomplete item data parsed from notes for order_id: {}, item index: {}, data: {}",
+                        orderId, i, itemJson);
+                continue;
+            }
+            item.setPrinterId(itemJson.path("printerId").asInt(-1));
+            items.add(item);
+        }
+        log.info("Successfully parsed {} items from 'items' note for order ID: {}", items.size(), orderId);
+        return items;
+    }
+
+    /**
+     * Payment time in IST: the legacy order_timestamp note if present, else the payment's
+     * created_at (epoch seconds), else when the order was stored.
+     */
+    private ZonedDateTime resolvePaymentTime(JsonNode entity, PrintOrder printOrder) {
+        String orderTimestamp = entity.path("notes").path("order_timestamp").asText("");
+        if (!orderTimestamp.isEmpty()) {
+            try {
+                return ZonedDateTime.parse(orderTimestamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME).withZoneSameInstant(IST);
+            } catch (DateTimeParseException e) {
+                log.warn("Ignoring unparseable order_timestamp '{}'", orderTimestamp);
+            }
+        }
+        long createdAt = entity.path("created_at").asLong(0);
+        if (createdAt > 0) {
+            return Instant.ofEpochSecond(createdAt).atZone(IST);
+        }
+        if (printOrder != null && printOrder.getCreatedAt() != null) {
+            return printOrder.getCreatedAt().atZone(ZoneId.systemDefault()).withZoneSameInstant(IST);
+        }
+        return ZonedDateTime.now(IST);
+    }
+
+    /** An event that no retry can fix; it goes straight to the dead-letter table. */
+    static class UnprocessableEventException extends Exception {
+        UnprocessableEventException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.pdf.printer.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a PDF that contains a document N times in a row (collated copies), for printers that
+ * print every attachment once and cannot be told a copy count.
+ * <p>
+ * Each copy gets its own page dictionaries, but they all point at the same content streams,
+ * fonts and images, which the writer emits once. The result is barely larger than the original,
+ * unlike attaching the file N times. Like {@link PdfRangeExtractor}, the source is read lazily and
+ * scratch buffers spill to temp files.
+ */
+@Component
+public class PdfCopyExpander {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfCopyExpander.class);
+
+    private static final COSName[] INHERITABLE = {
+            COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE
+    };
+
+    /**
+     * Writes {@code copies} collated copies of {@code input} to {@code output}.
+     *
+     * @return the number of pages written
+     */
+    public int expand(Path input, Path output, int copies) throws IOException {
+        if (copies < 1) {
+            throw new IllegalArgumentException("Copies must be at least 1, got " + copies);
+        }
+        File inputFile = input.toFile();
+        if (!inputFile.exists()) {
+            throw new IOException("Input PDF not found: " + input);
+        }
+        try (PDDocument source = Loader.loadPDF(new RandomAccessReadBufferedFile(inputFile), "", null, null,
+                IOUtils.createTempFileOnlyStreamCache());
+             PDDocument target = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+            target.getDocument().setVersion(source.getVersion());
+            PDPageTree pages = source.getPages();
+            for (int copy = 0; copy < copies; copy++) {
+                for (PDPage page : pages) {
+                    target.addPage(new PDPage(pageCopy(page.getCOSObject())));
+                }
+            }
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+                target.save(out, CompressParameters.NO_COMPRESSION);
+            }
+            log.info("Expanded {} ({} pages) to {} copies in {}", input.getFileName(), source.getNumberOfPages(),
+                    copies, output.getFileName());
+            return target.getNumberOfPages();
+        }
+    }
+
+    /**
+     * A new page dictionary sharing the page's entries (indirect objects stay shared), with the
+     * attributes it inherited from its parent made explicit.
+     */
+    private COSDictionary pageCopy(COSDictionary page) {
+        COSDictionary copy = new COSDictionary();
+        for (COSName key : page.keySet()) {
+            copy.setItem(key, page.getItem(key));
+        }
+        for (COSName key : INHERITABLE) {
+            COSBase value = PDPageTree.getInheritableAttribute(page, key);
+            if (value != null) {
+                copy.setItem(key, value);
+            }
+        }
+        copy.removeItem(COSName.PARENT);
+        copy.removeItem(COSName.B);
+        copy.removeItem(COSName.STRUCT_PARENTS);
+        copy.setItem(COSName.ANNOTS, printableAnnotations(page.getCOSArray(COSName.ANNOTS)));
+        return copy;
+    }
+
+    /**
+     * Annotations without links and without their /P back to the source page; either would make
+     * the writer follow them into the source document's page tree.
+     */
+    private COSArray printableAnnotations(COSArray annotations) {
+        if (annotations == null) {
+            return null;
+        }
+        COSArray kept = new COSArray();
+        for (int i = 0; i < annotations.size(); i++) {
+            if (annotations.getObject(i) instanceof COSDictionary annotation
+                    && !"Link".equals(annotation.getNameAsString(COSName.SUBTYPE))) {
+                annotation.removeItem(COSName.P);
+                kept.add(annotations.get(i));
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,387 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a PDF's page count without loading the document.
+ * <p>
+ * {@link #probe(Path)} follows startxref, the classic xref tables (including /Prev chains of
+ * incremental updates) and the trailer to the catalog and page tree root, reading only those few
+ * objects with positional reads. {@link #probeLinearized(byte[], int, long)} reads /N from the
+ * linearization dictionary at the very start of a file, so it works while an upload is still
+ * streaming. Both return empty when the file uses something they do not parse (xref streams,
+ * object streams, encryption quirks, damage), and callers then fall back to PDFBox.
+ */
+public final class PdfPageCountProbe {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfPageCountProbe.class);
+
+    /** Bytes of the file head needed to see the linearization dictionary. */
+    public static final int LINEARIZATION_HEAD_BYTES = 1024;
+
+    private static final int TAIL_BYTES = 2048;
+    private static final int OBJECT_WINDOW = 256 * 1024;
+    private static final int MAX_XREF_SECTIONS = 64;
+
+    private PdfPageCountProbe() {
+    }
+
+    public static OptionalInt probe(Path pdf) {
+        try (FileChannel channel = FileChannel.open(pdf, StandardOpenOption.READ)) {
+            return new Reader(channel).pageCount();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Page count probe could not read {}: {}", pdf, e.getMessage());
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Page count from the linearization dictionary in the first bytes of a file. The dictionary is
+     * only trusted when its /L matches the real file length (an incremental update invalidates it).
+     */
+    public static OptionalInt probeLinearized(byte[] head, int length, long fileLength) {
+        try {
+            Lexer lexer = new Lexer(head, 0, length);
+            lexer.skipHeaderComments();
+            if (!(lexer.next() instanceof Long) || !(lexer.next() instanceof Long) || !"obj".equals(lexer.next())) {
+                return OptionalInt.empty();
+            }
+            Object value = lexer.value();
+            if (!(value instanceof Map)) {
+                return OptionalInt.empty();
+            }
+            Map<?, ?> dict = (Map<?, ?>) value;
+            Object linearized = dict.get("Linearized");
+            Object pages = dict.get("N");
+            Object declaredLength = dict.get("L");
+            if (linearized == null || !(pages instanceof Long)) {
+                return OptionalInt.empty();
+            }
+            if (fileLength > 0 && (!(declaredLength instanceof Long) || (Long) declaredLength != fileLength)) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(((Long) pages).intValue());
+        } catch (RuntimeException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    private record Ref(long number, long generation) {
+    }
+
+    /**
+     * Walks startxref -> xref tables -> trailer -> /Root -> /Pages -> /Count.
+     */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private final Map<Long, Long> offsets = new HashMap<>();
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        OptionalInt pageCount() throws IOException {
+            long startXref = findStartXref();
+            if (startXref < 0) {
+                return OptionalInt.empty();
+            }
+            Ref root = null;
+            Set<Long> seen = new HashSet<>();
+            long sectionOffset = startXref;
+            while (sectionOffset >= 0 && seen.add(sectionOffset) && seen.size() <= MAX_XREF_SECTIONS) {
+                Map<?, ?> trailer = readXrefSection(sectionOffset);
+                if (trailer == null) {
+                    return OptionalInt.empty(); // xref stream or damaged table
+                }
+                if (trailer.containsKey("Encrypt")) {
+                    return OptionalInt.empty();
+                }
+                if (root == null && trailer.get("Root") instanceof Ref) {
+                    root = (Ref) trailer.get("Root");
+                }
+                Object prev = trailer.get("Prev");
+                sectionOffset = prev instanceof Long ? (Long) prev : -1;
+            }
+            if (root == null) {
+                return OptionalInt.empty();
+            }
+            Object catalog = readObject(root);
+            if (!(catalog instanceof Map) || !(((Map<?, ?>) catalog).get("Pages") instanceof Ref)) {
+                return OptionalInt.empty();
+            }
+            Object pages = readObject((Ref) ((Map<?, ?>) catalog).get("Pages"));
+            if (!(pages instanceof Map)) {
+                return OptionalInt.empty();
+            }
+            Object count = ((Map<?, ?>) pages).get("Count");
+            if (count instanceof Ref) {
+                count = readObject((Ref) count);
+            }
+            return count instanceof Long && (Long) count >= 0 ? OptionalInt.of(((Long) count).intValue()) : OptionalInt.empty();
+        }
+
+        private long findStartXref() throws IOException {
+            int tailLength = (int) Math.min(size, TAIL_BYTES);
+            byte[] tail = read(size - tailLength, tailLength);
+            String text = new String(tail, StandardCharsets.ISO_8859_1);
+            int index = text.lastIndexOf("startxref");
+            if (index < 0) {
+                return -1;
+            }
+            Lexer lexer = new Lexer(tail, index + "startxref".length(), tail.length);
+            Object offset = lexer.next();
+            return offset instanceof Long && (Long) offset < size ? (Long) offset : -1;
+        }
+
+        /**
+         * Reads one classic xref section and its trailer. Newer sections are read first, so
+         * entries already known are not overwritten. Returns null for xref streams.
+         */
+        private Map<?, ?> readXrefSection(long offset) throws IOException {
+            byte[] buffer = read(offset, (int) Math.min(size - offset, OBJECT_WINDOW));
+            Lexer lexer = new Lexer(buffer, 0, buffer.length);
+            if (!"xref".equals(lexer.next())) {
+                return null;
+            }
+            while (true) {
+                Object token = lexer.next();
+                if ("trailer".equals(token)) {
+                    Object trailer = lexer.value();
+                    return trailer instanceof Map ? (Map<?, ?>) trailer : null;
+                }
+                if (!(token instanceof Long) || !(lexer.next() instanceof Long count)) {
+                    return null;
+                }
+                long first = (Long) token;
+                for (long i = 0; i < count; i++) {
+                    Object entryOffset = lexer.next();
+                    Object generation = lexer.next();
+                    Object type = lexer.next();
+                    if (!(entryOffset instanceof Long) || !(generation instanceof Long)) {
+                        return null;
+                    }
+                    if ("n".equals(type)) {
+                        offsets.putIfAbsent(first + i, (Long) entryOffset);
+                    } else if ("f".equals(type)) {
+                        offsets.putIfAbsent(first + i, -1L);
+                    } else {
+                        return null;
+                    }
+                }
+                if (lexer.exhausted()) {
+                    return null; // xref table larger than the window; let PDFBox handle it
+                }
+            }
+        }
+
+        private Object readObject(Ref ref) throws IOException {
+            Long offset = offsets.get(ref.number());
+            if (offset == null || offset < 0 || offset >= size) {
+                return null; // free, missing, or stored in an object stream
+            }
+            byte[] buffer = read(offset, (int) Math.min(size - offset, OBJECT_WINDOW));
+            Lexer lexer = new Lexer(buffer, 0, buffer.length);
+            Object number = lexer.next();
+            Object generation = lexer.next();
+            if (!Long.valueOf(ref.number()).equals(number) || !(generation instanceof Long) || !"obj".equals(lexer.next())) {
+                return null;
+            }
+            return lexer.value();
+        }
+
+        private byte[] read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Minimal PDF object lexer: numbers, names, keywords, strings (skipped), arrays, dictionaries
+     * and indirect references. Names are returned without the slash, dictionaries as maps.
+     */
+    private static final class Lexer {
+        private static final Object DICT_END = new Object();
+        private static final Object ARRAY_END = new Object();
+        private static final Object STRING = new Object();
+
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        Lexer(byte[] data, int start, int end) {
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+        }
+
+        boolean exhausted() {
+            skipWhitespace();
+            return pos >= end;
+        }
+
+        void skipHeaderComments() {
+            skipWhitespace();
+        }
+
+        /** Parses a full value, resolving "n g R" into a reference. */
+        Object value() {
+            Object token = next();
+            if (token instanceof Long) {
+                int mark = pos;
+                Object generation = next();
+                if (generation instanceof Long && "R".equals(next())) {
+                    return new Ref((Long) token, (Long) generation);
+                }
+                pos = mark;
+                return token;
+            }
+            if ("<<".equals(token)) {
+                Map<String, Object> dict = new HashMap<>();
+                while (true) {
+                    Object key = next();
+                    if (key == DICT_END || key == null) {
+                        return dict;
+                    }
+                    if (!(key instanceof Name)) {
+                        throw new IllegalStateException("Dictionary key expected");
+                    }
+                    Object value = value();
+                    if (value == DICT_END || value == null) {
+                        throw new IllegalStateException("Dictionary value expected");
+                    }
+                    dict.put(((Name) key).value(), value);
+                }
+            }
+            if ("[".equals(token)) {
+                List<Object> array = new ArrayList<>();
+                while (true) {
+                    Object item = value();
+                    if (item == ARRAY_END || item == null) {
+                        return array;
+                    }
+                    array.add(item);
+                }
+            }
+            return token;
+        }
+
+        /** Next raw token, or null at the end of the window. */
+        Object next() {
+            skipWhitespace();
+            if (pos >= end) {
+                return null;
+            }
+            byte c = data[pos];
+            switch (c) {
+                case '/': {
+                    int start = ++pos;
+                    while (pos < end && !isWhitespace(data[pos]) && !isDelimiter(data[pos])) pos++;
+                    return new Name(new String(data, start, pos - start, StandardCharsets.ISO_8859_1));
+                }
+                case '<':
+                    if (pos + 1 < end && data[pos + 1] == '<') {
+                        pos += 2;
+                        return "<<";
+                    }
+                    while (pos < end && data[pos] != '>') pos++;
+                    pos++;
+                    return STRING;
+                case '>':
+                    if (pos + 1 < end && data[pos + 1] == '>') {
+                        pos += 2;
+                        return DICT_END;
+                    }
+                    throw new IllegalStateException("Unexpected '>'");
+                case '[':
+                    pos++;
+                    return "[";
+                case ']':
+                    pos++;
+                    return ARRAY_END;
+                case '(':
+                    skipLiteralString();
+                    return STRING;
+                default:
+                    break;
+            }
+            int start = pos;
+            while (pos < end && !isWhitespace(data[pos]) && !isDelimiter(data[pos])) pos++;
+            if (pos == start) {
+                throw new IllegalStateException("Unexpected character " + (char) c);
+            }
+            String word = new String(data, start, pos - start, StandardCharsets.ISO_8859_1);
+            if (word.matches("[+-]?\\d+")) {
+                return Long.parseLong(word);
+            }
+            if (word.matches("[+-]?(\\d+\\.\\d*|\\.\\d+)")) {
+                return Double.parseDouble(word);
+            }
+            return word;
+        }
+
+        private void skipLiteralString() {
+            int depth = 0;
+            while (pos < end) {
+                byte c = data[pos++];
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < end) {
+                byte c = data[pos];
+                if (isWhitespace(c)) {
+                    pos++;
+                } else if (c == '%') {
+                    while (pos < end && data[pos] != '\n' && data[pos] != '\r') pos++;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private static boolean isWhitespace(byte c) {
+            return c == 0 || c == 9 || c == 10 || c == 12 || c == 13 || c == 32;
+        }
+
+        private static boolean isDelimiter(byte c) {
+            return c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']'
+                    || c == '{' || c == '}' || c == '/' || c == '%';
+        }
+    }
+
+    private record Name(String value) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.pdf.printer.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a page range of a PDF to a new file by copying only the objects reachable from the selected pages.
+ * <p>
+ * The source is parsed lazily from a buffered random-access view of the file, so only the xref, the
+ * page tree nodes on the way to the range and the objects the selected pages reference are ever read.
+ * Stream data is written in its encoded form (no decode/re-encode) and any scratch buffers spill to
+ * temp files instead of heap. Links and article beads that point at pages outside the range are dropped,
+ * otherwise the writer would follow them (and their /Parent) back into the whole book.
+ */
+@Component
+public class PdfRangeExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRangeExtractor.class);
+
+    private static final COSName[] INHERITABLE = {
+            COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE
+    };
+
+    /**
+     * Extracts pages {@code startPage..endPage} (1-based, inclusive) into {@code output}.
+     *
+     * @return the number of pages written, so callers do not need to parse the result again
+     * @throws IllegalArgumentException if the range is outside the document
+     */
+    public int extract(Path input, Path output, int startPage, int endPage) throws IOException {
+        File inputFile = input.toFile();
+        if (!inputFile.exists()) {
+            throw new IOException("Input PDF not found: " + input);
+        }
+        try (PDDocument source = Loader.loadPDF(new RandomAccessReadBufferedFile(inputFile), "", null, null,
+                IOUtils.createTempFileOnlyStreamCache())) {
+            int pageCount = source.getNumberOfPages();
+            if (startPage < 1 || endPage > pageCount || startPage > endPage) {
+                throw new IllegalArgumentException(String.format("Invalid page range %d-%d for document with %d pages", startPage, endPage, pageCount));
+            }
+
+            PDPageTree pages = source.getPages();
+            Map<COSDictionary, Boolean> selected = new IdentityHashMap<>();
+            PDPage[] range = new PDPage[endPage - startPage + 1];
+            for (int i = 0; i < range.length; i++) {
+                range[i] = pages.get(startPage - 1 + i);
+                selected.put(range[i].getCOSObject(), Boolean.TRUE);
+            }
+
+            try (PDDocument target = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+                target.getDocument().setVersion(source.getVersion());
+                for (PDPage page : range) {
+                    COSDictionary dictionary = page.getCOSObject();
+                    // The page leaves its parent chain, so attributes inherited from it must move onto the page
+                    for (COSName key : INHERITABLE) {
+                        COSBase value = PDPageTree.getInheritableAttribute(dictionary, key);
+                        if (value != null) {
+                            dictionary.setItem(key, value);
+                        }
+                    }
+                    dictionary.removeItem(COSName.B);
+                    pruneAnnotations(dictionary, selected);
+                    target.addPage(page);
+                }
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+                    target.save(out, CompressParameters.NO_COMPRESSION);
+                }
+                log.info("Extracted pages {}-{} of {} ({} pages) to {}", startPage, endPage, input.getFileName(), pageCount, output.getFileName());
+                return target.getNumberOfPages();
+            }
+        }
+    }
+
+    /**
+     * Removes link annotations whose destination is a page outside the extracted range.
+     */
+    private void pruneAnnotations(COSDictionary page, Map<COSDictionary, Boolean> selected) {
+        COSArray annotations = page.getCOSArray(COSName.ANNOTS);
+        if (annotations == null) {
+            return;
+        }
+        COSArray kept = new COSArray();
+        for (int i = 0; i < annotations.size(); i++) {
+            COSBase entry = annotations.getObject(i);
+            if (entry instanceof COSDictionary annotation && pointsOutside(annotation, selected)) {
+                continue;
+            }
+            kept.add(annotations.get(i));
+        }
+        if (kept.size() != annotations.size()) {
+            page.setItem(COSName.ANNOTS, kept);
+        }
+    }
+
+    private boolean pointsOutside(COSDictionary annotation, Map<COSDictionary, Boolean> selected) {
+        if (annotation.getDictionaryObject(COSName.P) instanceof COSDictionary owner && !selected.containsKey(owner)) {
+            annotation.removeItem(COSName.P);
+        }
+        if (!"Link".equals(annotation.getNameAsString(COSName.SUBTYPE))) {
+            return false;
+        }
+        COSBase destination = annotation.getDictionaryObject(COSName.DEST);
+        if (destination == null && annotation.getDictionaryObject(COSName.A) instanceof COSDictionary action) {
+            destination = action.getDictionaryObject(COSName.D);
+        }
+        if (destination instanceof COSArray array && array.size() > 0) {
+            COSBase target = array.get(0);
+            if (target instanceof COSObject object) {
+                target = object.getObject();
+            }
+            return target instanceof COSDictionary targetPage && !selected.containsKey(targetPage);
+        }
+        return false;
+    }
+}
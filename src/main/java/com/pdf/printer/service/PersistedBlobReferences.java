@@ -0,0 +1,38 @@
+package com.pdf.printer.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pdf.printer.repo.PrintJobRepository;
+import com.pdf.printer.repo.PrintOrderRepository;
+
+/**
+ * Tells {@link ContentStore} which blobs stored state still needs: files of print jobs not yet
+ * delivered (PENDING, or DEAD and waiting to be resent) and of recent unpaid orders, whose payment
+ * may still arrive. Blobs are shared across customers and the print queue outlives restarts, so
+ * this is what keeps the first release after a restart from deleting another order's files.
+ */
+@Component
+public class PersistedBlobReferences {
+
+    private final PrintJobRepository printJobRepository;
+    private final PrintOrderRepository printOrderRepository;
+    private final Duration unpaidOrderHold;
+
+    public PersistedBlobReferences(ContentStore contentStore, PrintJobRepository printJobRepository,
+                                   PrintOrderRepository printOrderRepository,
+                                   @Value("${print.store.unpaid-order-hold-hours:24}") long unpaidOrderHoldHours) {
+        this.printJobRepository = printJobRepository;
+        this.printOrderRepository = printOrderRepository;
+        this.unpaidOrderHold = Duration.ofHours(unpaidOrderHoldHours);
+        contentStore.addReferenceSource(this::count);
+    }
+
+    long count(String fileName) {
+        return printJobRepository.countUnsentNaming(fileName)
+                + printOrderRepository.countUnpaidItemsNaming(fileName, LocalDateTime.now().minus(unpaidOrderHold));
+    }
+}
@@ -16,6 +16,8 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 
 @Service
@@ -35,6 +37,28 @@ public class PhotoToPdfService {
         return mm * 2.83465f;
     }
 
+    /**
+     * Writes the image as a one-page A4 PDF (landscape if the image is wider than tall), scaled to
+     * fit inside the margins and centred. A JPEG is embedded as is, without re-encoding.
+     */
+    public void imageToPdf(Path image, OutputStream outputStream) throws IOException {
+        try {
+            Image pdfImage = Image.getInstance(Files.readAllBytes(image));
+            Rectangle pageSize = pdfImage.getWidth() > pdfImage.getHeight() ? PageSize.A4.rotate() : PageSize.A4;
+            float margin = mmToPoints(MARGIN_MM);
+            Document document = new Document(pageSize, margin, margin, margin, margin);
+            PdfWriter.getInstance(document, outputStream);
+            document.open();
+            pdfImage.scaleToFit(pageSize.getWidth() - 2 * margin, pageSize.getHeight() - 2 * margin);
+            pdfImage.setAbsolutePosition((pageSize.getWidth() - pdfImage.getScaledWidth()) / 2,
+                    (pageSize.getHeight() - pdfImage.getScaledHeight()) / 2);
+            document.add(pdfImage);
+            document.close();
+        } catch (DocumentException e) {
+            throw new IOException("Error generating PDF", e);
+        }
+    }
+
     public void generatePdf(MultipartFile photo, int copies, OutputStream outputStream) throws IOException {
         try {
             // Read original image with high quality
@@ -0,0 +1,178 @@
+package com.pdf.printer.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * Prices orders from a tier table built from the {@link ShopRegistry}, and rebuilt whenever the
+ * registry reloads. Printers are looked up by numeric id in an array (binary search over sorted ids
+ * when they are too far apart), and pricing reads only primitive fields, so pricing an order
+ * allocates nothing.
+ * <p>
+ * As before, the whole page count is charged at the rate of the tier it falls in: up to
+ * {@code range1} pages at the first rate, up to {@code range2} at the second, above that at the third.
+ * Pages are printed sides, so a duplex item costs the same as a one-sided one; duplex only saves paper.
+ */
+@Component
+public class PricingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingEngine.class);
+
+    public static final int BW = 0;
+    public static final int COLOR = 1;
+
+    private static final int MAX_DENSE_SPAN = 4096;
+
+    /** Per-printer tiers. */
+    private record Tiers(int range1, int range2, int bw1, int bw2, int bw3, int color1, int color2, int color3) {
+
+        int price(long pages, boolean color) {
+            if (pages <= 0) {
+                return 0;
+            }
+            return Math.toIntExact(pages * rate(pages, color));
+        }
+
+        int rate(long pages, boolean color) {
+            if (pages <= range1) {
+                return color ? color1 : bw1;
+            }
+            if (pages <= range2) {
+                return color ? color2 : bw2;
+            }
+            return color ? color3 : bw3;
+        }
+    }
+
+    public record Quote(int printerId, long bwPages, long colorPages, int bwRate, int colorRate,
+                        int bwPrice, int colorPrice, int total) {
+    }
+
+    /**
+     * Tiers indexed by printer id - minId, null where no shop has that id. Ids too far apart for
+     * an array are kept sorted in {@code sparseIds} instead, with their tiers at the same index in
+     * {@code sparseTiers}.
+     */
+    private record Table(int minId, Tiers[] tiersById, int[] sparseIds, Tiers[] sparseTiers) {
+    }
+
+    private volatile Table table = new Table(0, new Tiers[0], null, null);
+
+    public PricingEngine(ShopRegistry shopRegistry) {
+        shopRegistry.onReload(snapshot -> rebuild(snapshot.shops()));
+    }
+
+    PricingEngine(Collection<ShopRegistry.ShopInfo> shops) {
+        rebuild(shops);
+    }
+
+    /**
+     * Builds a new table from the active shops and publishes it; quotes in progress keep the table they
+     * started with. A deactivated shop is priced like an unknown one, so it cannot take new orders.
+     */
+    void rebuild(Collection<ShopRegistry.ShopInfo> allShops) {
+        List<ShopRegistry.ShopInfo> shops = allShops.stream().filter(ShopRegistry.ShopInfo::active).toList();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (ShopRegistry.ShopInfo shop : shops) {
+            min = Math.min(min, shop.id());
+            max = Math.max(max, shop.id());
+        }
+        if (!shops.isEmpty() && (long) max - min > MAX_DENSE_SPAN) {
+            List<ShopRegistry.ShopInfo> sorted = shops.stream().sorted(Comparator.comparingInt(ShopRegistry.ShopInfo::id)).toList();
+            int[] sparseIds = new int[sorted.size()];
+            Tiers[] sparseTiers = new Tiers[sorted.size()];
+            for (int i = 0; i < sparseIds.length; i++) {
+                sparseIds[i] = sorted.get(i).id();
+                sparseTiers[i] = tiersOf(sorted.get(i));
+            }
+            table = new Table(0, new Tiers[0], sparseIds, sparseTiers);
+        } else {
+            int minId = shops.isEmpty() ? 0 : min;
+            Tiers[] tiersById = new Tiers[shops.isEmpty() ? 0 : max - min + 1];
+            for (ShopRegistry.ShopInfo shop : shops) {
+                tiersById[shop.id() - minId] = tiersOf(shop);
+            }
+            table = new Table(minId, tiersById, null, null);
+        }
+        log.info("Pricing table built for {} printers ({} inactive left out)", shops.size(), allShops.size() - shops.size());
+    }
+
+    private static Tiers tiersOf(ShopRegistry.ShopInfo shop) {
+        return new Tiers(shop.range1(), shop.range2(), shop.bwCostRange1(), shop.bwCostRange2(), shop.bwCostRange3(),
+                shop.colorCostRange1(), shop.colorCostRange2(), shop.colorCostRange3());
+    }
+
+    public boolean isKnownPrinter(int printerId) {
+        return tiersOrNull(table, printerId) != null;
+    }
+
+    /**
+     * Total in rupees for the given aggregated page counts (pages x copies per print type).
+     *
+     * @throws IllegalArgumentException if the printer is unknown or a count is negative
+     */
+    public int price(int printerId, long bwPages, long colorPages) {
+        Tiers tiers = tiers(printerId, bwPages, colorPages);
+        return Math.addExact(tiers.price(bwPages, false), tiers.price(colorPages, true));
+    }
+
+    /**
+     * Total in rupees for an order's items; items with no pages are free.
+     */
+    public int price(int printerId, List<FileOrderItem> items) {
+        long bwPages = 0;
+        long colorPages = 0;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            FileOrderItem item = items.get(i);
+            if (item.getPageCount() > 0) {
+                long pageInteractions = (long) item.getPageCount() * item.getNumberOfCopies();
+                if (item.getPrintType() == BW) {
+                    bwPages += pageInteractions;
+                } else {
+                    colorPages += pageInteractions;
+                }
+            }
+        }
+        return price(printerId, bwPages, colorPages);
+    }
+
+    /**
+     * Price breakdown for the front end.
+     */
+    public Quote quote(int printerId, long bwPages, long colorPages) {
+        Tiers tiers = tiers(printerId, bwPages, colorPages);
+        int bwPrice = tiers.price(bwPages, false);
+        int colorPrice = tiers.price(colorPages, true);
+        return new Quote(printerId, bwPages, colorPages, tiers.rate(bwPages, false), tiers.rate(colorPages, true),
+                bwPrice, colorPrice, Math.addExact(bwPrice, colorPrice));
+    }
+
+    private Tiers tiers(int printerId, long bwPages, long colorPages) {
+        Tiers tiers = tiersOrNull(table, printerId);
+        if (tiers == null) {
+            throw new IllegalArgumentException("Unknown printer " + printerId);
+        }
+        if (bwPages < 0 || colorPages < 0) {
+            throw new IllegalArgumentException("Page counts cannot be negative");
+        }
+        return tiers;
+    }
+
+    private static Tiers tiersOrNull(Table table, int printerId) {
+        if (table.sparseIds() != null) {
+            int index = Arrays.binarySearch(table.sparseIds(), printerId);
+            return index >= 0 ? table.sparseTiers()[index] : null;
+        }
+        int index = printerId - table.minId();
+        return index >= 0 && index < table.tiersById().length ? table.tiersById()[index] : null;
+    }
+}
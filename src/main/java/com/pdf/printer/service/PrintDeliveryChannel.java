@@ -0,0 +1,46 @@
+package com.pdf.printer.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * A way of getting a paid order to the shop's printer: {@link EmailDeliveryChannel} or
+ * {@link IppDeliveryChannel}. {@link PrintJobWorker} uses the first channel, in
+ * {@link org.springframework.core.annotation.Order} order, that supports the shop.
+ * <p>
+ * An order goes out in parts (emails, IPP jobs) that the other side accepts one by one. A channel
+ * reports which parts got through, so a retry after a partial failure sends only the rest.
+ */
+public interface PrintDeliveryChannel {
+
+    /** Short name for logs, e.g. "email". */
+    String name();
+
+    boolean supports(ShopRegistry.ShopInfo shop);
+
+    /**
+     * Sends the parts of the order that were not delivered before.
+     *
+     * @param delivered given the number of parts the order has, the ones accepted in earlier attempts
+     * @throws Exception if the order could not be prepared at all; then nothing was sent
+     */
+    Outcome deliver(ShopRegistry.ShopInfo shop, List<FileOrderItem> items, String orderReference,
+                    IntFunction<Set<Integer>> delivered) throws Exception;
+
+    /**
+     * Whether a failure from {@link #deliver} would fail again however often it is retried, e.g. a
+     * document the printer refuses; the job then goes straight to DEAD.
+     */
+    default boolean isPermanent(Exception failure) {
+        return false;
+    }
+
+    /**
+     * What one attempt achieved: the parts (counting from 1) accepted during it, and the first
+     * failure, or null if every remaining part got through.
+     */
+    record Outcome(int parts, Set<Integer> delivered, Exception failure) { }
+}
@@ -0,0 +1,421 @@
+package com.pdf.printer.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdf.printer.dto.FileOrderItem;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+
+/**
+ * What happens once an order is paid: its print email is built for {@link EmailDeliveryChannel} to
+ * send, and once the order has been delivered the files are released.
+ */
+@Service
+public class PrintFulfillmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrintFulfillmentService.class);
+
+    // Kept free in every message for headers, the body and the manifest
+    private static final long MESSAGE_OVERHEAD_BYTES = 64 * 1024;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${spring.mail.username}")
+    private String mailUsername;
+
+    // AUTO picks EXPANDED_PDF for the domains below and MANIFEST for everything else
+    @Value("${print.email.delivery-mode:AUTO}")
+    private String deliveryMode;
+
+    @Value("${print.email.expanded-pdf-domains:epsonconnect.com}")
+    private String[] expandedPdfDomains;
+
+    // Largest message to send, as counted by the printer's mail server (after base64). Gmail and
+    // Epson Connect both stop around 20-25 MB; larger orders are split over several emails.
+    @Value("${print.email.max-message-bytes:20000000}")
+    private long maxMessageBytes;
+
+    private final JavaMailSender mailSender;
+    private final ContentStore contentStore;
+    private final ShopRegistry shopRegistry;
+    private final PdfCopyExpander pdfCopyExpander;
+    private final PhotoToPdfService photoToPdfService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public PrintFulfillmentService(JavaMailSender mailSender, ContentStore contentStore, ShopRegistry shopRegistry,
+                                   PdfCopyExpander pdfCopyExpander, PhotoToPdfService photoToPdfService) {
+        this.mailSender = mailSender;
+        this.contentStore = contentStore;
+        this.shopRegistry = shopRegistry;
+        this.pdfCopyExpander = pdfCopyExpander;
+        this.photoToPdfService = photoToPdfService;
+    }
+
+    /**
+     * Releases the order's files. Blobs shared with other uploads/orders are only deleted once
+     * nothing references them.
+     *
+     * @return the number of successful and failed releases
+     */
+    public int[] releaseFiles(List<FileOrderItem> itemsToProcess, String orderReference) {
+        int successCount = 0;
+        int failureCount = 0;
+        log.info("Starting file release process for order reference: {}", orderReference);
+        for (FileOrderItem item : itemsToProcess) {
+            try {
+                contentStore.release(item.getFileName());
+                successCount++;
+                // Optional: log individual success if needed:
+                // log.debug("Successfully deleted file: {} for order reference: {}", item.getFileName(), orderReference);
+            } catch (IOException e) {
+                failureCount++;
+                log.error("Failed to release file: {} for order reference: {}. Error: {}", item.getFileName(), orderReference, e.getMessage());
+            }
+        }
+        return new int[] {successCount, failureCount};
+    }
+
+    /**
+     * How the copy count reaches the printer. MANIFEST attaches each distinct file once and states
+     * the copies in the body and in a {@code print-manifest.json} part, for printers (or staff) that
+     * read them. EXPANDED_PDF is for addresses that print each attachment exactly once, such as Epson
+     * Connect: a file needing several copies is sent as one PDF holding all of them (an image is put
+     * on a PDF page first). If that PDF cannot be written, each copy is attached separately instead.
+     */
+    public enum DeliveryMode { MANIFEST, EXPANDED_PDF }
+
+    DeliveryMode deliveryModeFor(String printerEmail) {
+        if (!"AUTO".equalsIgnoreCase(deliveryMode)) {
+            return DeliveryMode.valueOf(deliveryMode.toUpperCase());
+        }
+        String domain = printerEmail.substring(printerEmail.indexOf('@') + 1).toLowerCase();
+        for (String expanded : expandedPdfDomains) {
+            String suffix = expanded.trim().toLowerCase();
+            if (!suffix.isEmpty() && (domain.equals(suffix) || domain.endsWith("." + suffix))) {
+                return DeliveryMode.EXPANDED_PDF;
+            }
+        }
+        return DeliveryMode.MANIFEST;
+    }
+
+    /**
+     * One email of an order, {@code part} of {@code parts} (counting from 1). An order within the
+     * size budget is a single part.
+     */
+    public record PrintEmail(int part, int parts, MimeMessage message) { }
+
+    /**
+     * All emails of an order. Closing it deletes the temp files their attachments are read from,
+     * so close it only after every part has been sent.
+     */
+    public record PrintEmails(List<PrintEmail> parts, List<Path> scratchFiles) implements AutoCloseable {
+        @Override
+        public void close() {
+            for (Path scratch : scratchFiles) {
+                try {
+                    Files.deleteIfExists(scratch);
+                } catch (IOException e) {
+                    log.warn("Could not delete temp file {}: {}", scratch, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // A file as attached; index is its position in the order, encodedSize what it costs on the wire
+    private record Attachment(int index, String name, Path file, long encodedSize) { }
+
+    // An order item as described to the printer, and the attachment(s) carrying it
+    private record PlannedItem(String line, Map<String, Object> manifestEntry, List<Attachment> attachments) { }
+
+    /**
+     * Builds the order's print emails, each distinct file attached once; see {@link DeliveryMode}
+     * for how the copies are conveyed. An order over {@code print.email.max-message-bytes} is split
+     * into as few emails as fit ({@link AttachmentPacker}), marked "part i/n" in the subject, body
+     * and manifest.
+     *
+     * @param items          List of file order items.
+     * @param orderReference The order reference for context.
+     * @throws MessagingException If email configuration is missing, any file of the order is missing or
+     *                            cannot be attached, or a message cannot be built.
+     */
+    public PrintEmails preparePrintEmails(List<FileOrderItem> items, String orderReference) throws MessagingException {
+        // Ensure email configuration is present
+        String printerEmail = shopRegistry.getEmailById(items.get(0).getPrinterId());
+        log.debug("Printer email for order reference {} is {}", orderReference, printerEmail);
+        if (mailUsername == null || mailUsername.isBlank() || printerEmail == null || printerEmail.isBlank()) {
+            log.error("Email 'from' address or 'to' address not configured for order reference: {}", orderReference);
+            throw new MessagingException("Email configuration missing (sender or recipient).");
+        }
+
+        DeliveryMode mode = deliveryModeFor(printerEmail);
+        List<Path> scratchFiles = new ArrayList<>(); // Expanded and converted PDFs, deleted once the emails are sent
+        boolean prepared = false;
+        try {
+            List<String> failedAttachments = new ArrayList<>();
+            List<PlannedItem> planned = new ArrayList<>();
+            List<Attachment> attachments = new ArrayList<>();
+            // The same stored file can appear in several items; it is still attached only once
+            Map<String, Attachment> attachedAs = new HashMap<>();
+
+            for (FileOrderItem item : items) {
+                String originalFileName = item.getFileName();
+                int numberOfCopies = Math.max(1, item.getNumberOfCopies());
+                Path filePath = Paths.get(uploadDir).resolve(originalFileName);
+                String typeStr = (item.getPrintType() == 0) ? "B&W" : "Color";
+                String line = String.format("- File: %s | Type: %s | Pages: %d | Copies: %d%s\n",
+                        originalFileName, typeStr, item.getPageCount(), numberOfCopies,
+                        item.isDuplex() ? " | Double-sided" : "");
+
+                if (!Files.exists(filePath)) {
+                    log.error("Attachment source file not found: {} for order reference: {}", filePath, orderReference);
+                    failedAttachments.add(originalFileName + " (Source File Not Found)");
+                    continue;
+                }
+
+                try {
+                    boolean expand = mode == DeliveryMode.EXPANDED_PDF && numberOfCopies > 1;
+                    String attachmentName;
+                    int copiesInAttachment;
+                    List<Attachment> carriers = new ArrayList<>();
+                    Path expanded = expand ? expandCopies(filePath, numberOfCopies, scratchFiles, orderReference) : null;
+                    if (expanded != null) {
+                        attachmentName = copiesName(originalFileName, numberOfCopies);
+                        carriers.add(newAttachment(attachments, attachmentName, expanded));
+                        copiesInAttachment = numberOfCopies;
+                    } else if (expand) {
+                        // Could not be expanded; fall back to one attachment per copy
+                        attachmentName = originalFileName;
+                        for (int i = 1; i <= numberOfCopies; i++) {
+                            carriers.add(newAttachment(attachments, copyName(originalFileName, i), filePath));
+                        }
+                        copiesInAttachment = numberOfCopies;
+                    } else {
+                        // Only the manifest can say "this attachment, twice"; otherwise each item needs its own
+                        Attachment attachment = mode == DeliveryMode.MANIFEST ? attachedAs.get(originalFileName) : null;
+                        if (attachment == null) {
+                            String name = attachedAs.containsKey(originalFileName)
+                                    ? copyName(originalFileName, planned.size() + 1) : originalFileName;
+                            attachment = newAttachment(attachments, name, filePath);
+                            attachedAs.put(originalFileName, attachment);
+                        }
+                        carriers.add(attachment);
+                        attachmentName = attachment.name();
+                        copiesInAttachment = 1;
+                    }
+
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("attachment", attachmentName);
+                    entry.put("printType", item.getPrintType() == 0 ? "BW" : "COLOR");
+                    entry.put("pages", item.getPageCount());
+                    entry.put("copies", numberOfCopies);
+                    entry.put("sides", item.isDuplex() ? "two-sided-long-edge" : "one-sided");
+                    entry.put("copiesInAttachment", copiesInAttachment);
+                    planned.add(new PlannedItem(line, entry, carriers));
+                } catch (Exception e) {
+                    log.error("Failed to attach '{}' for order reference: {}. Error: {}", originalFileName, orderReference, e.getMessage(), e);
+                    failedAttachments.add(originalFileName + " (Attachment Error: " + e.getMessage() + ")");
+                }
+            }
+
+            if (!failedAttachments.isEmpty()) {
+                // Sending the rest would mark the job delivered and release its files; fail it instead, so
+                // it is retried and, if the files never turn up, ends DEAD with everything kept
+                throw new MessagingException("Could not attach: " + String.join(", ", failedAttachments));
+            }
+
+            long budget = Math.max(1, maxMessageBytes - MESSAGE_OVERHEAD_BYTES);
+            List<List<Attachment>> bins = attachments.isEmpty()
+                    ? List.of(List.of()) : AttachmentPacker.pack(attachments, Attachment::encodedSize, budget);
+            for (Attachment attachment : attachments) {
+                if (attachment.encodedSize() > budget) {
+                    log.warn("Attachment '{}' of order {} is {} bytes encoded, over the {} byte message budget; sending it on its own",
+                            attachment.name(), orderReference, attachment.encodedSize(), maxMessageBytes);
+                }
+            }
+
+            List<PrintEmail> parts = new ArrayList<>();
+            for (int i = 0; i < bins.size(); i++) {
+                Set<Integer> inPart = new HashSet<>();
+                bins.get(i).forEach(attachment -> inPart.add(attachment.index()));
+                // Keep the order's own sequence within each part
+                List<Attachment> partAttachments = attachments.stream().filter(a -> inPart.contains(a.index())).toList();
+                List<PlannedItem> partItems = planned.stream()
+                        .filter(p -> p.attachments().stream().anyMatch(a -> inPart.contains(a.index()))).toList();
+                MimeMessage message = buildMessage(printerEmail, orderReference, mode, items.size(), i + 1, bins.size(),
+                        partItems, partAttachments);
+                parts.add(new PrintEmail(i + 1, bins.size(), message));
+            }
+
+            log.info("Prepared {} bulk email(s) to {} for order reference: {} ({} mode, {} file(s) attached).",
+                     parts.size(), printerEmail, orderReference, mode, planned.size());
+            prepared = true;
+            return new PrintEmails(parts, scratchFiles);
+
+        } catch (MessagingException e) {
+            // Catch errors during MimeMessageHelper setup
+            log.error("Failed to prepare bulk email for order reference: {}", orderReference, e);
+            throw e; // Re-throw to indicate failure to the caller
+        } catch (Exception e) {
+            // Catch unexpected errors during the process
+            log.error("Unexpected error during bulk email preparation for order reference: {}", orderReference, e);
+            // Wrap in MessagingException or a custom exception type
+            throw new MessagingException("Unexpected error preparing bulk email: " + e.getMessage(), e);
+        } finally {
+            if (!prepared) {
+                new PrintEmails(List.of(), scratchFiles).close();
+            }
+        }
+    }
+
+    private static Attachment newAttachment(List<Attachment> attachments, String name, Path file) throws IOException {
+        Attachment attachment = new Attachment(attachments.size(), name, file, AttachmentPacker.encodedSize(Files.size(file)));
+        attachments.add(attachment);
+        return attachment;
+    }
+
+    /**
+     * One email of the order.
+     */
+    private MimeMessage buildMessage(String printerEmail, String orderReference, DeliveryMode mode, int uniqueFiles,
+                                     int part, int parts, List<PlannedItem> partItems, List<Attachment> partAttachments)
+            throws MessagingException, IOException {
+        MimeMessage message = mailSender.createMimeMessage();
+        // Use multipart helper for attachments
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(mailUsername);
+        helper.setTo(printerEmail);
+
+        String subject = String.format("Bulk Print Request: %s - %d Unique File(s)", orderReference, uniqueFiles);
+        if (parts > 1) {
+            subject += String.format(" (part %d/%d)", part, parts);
+        }
+        helper.setSubject(subject);
+
+        StringBuilder emailBody = new StringBuilder();
+        emailBody.append(String.format("Bulk Print Request - Order Reference: %s\n\n", orderReference));
+        if (parts > 1) {
+            emailBody.append(String.format("Part %d of %d: the order was too large for one email, so its files are spread over %d emails.\n\n",
+                    part, parts, parts));
+        }
+        emailBody.append(String.format("Total Unique Files: %d\n\n", uniqueFiles));
+        emailBody.append(mode == DeliveryMode.MANIFEST
+                ? "Each file is attached once. Print it the number of copies listed (also in print-manifest.json):\n"
+                : "Attachments already contain all requested copies. Print each attachment once:\n");
+        emailBody.append("--------------------------------------------------------------------\n");
+        partItems.forEach(item -> emailBody.append(item.line()));
+        emailBody.append("--------------------------------------------------------------------\n\n");
+
+        emailBody.append("Please find the successfully attached file(s) for printing according to the details above.");
+        helper.setText(emailBody.toString());
+
+        for (Attachment attachment : partAttachments) {
+            attachFile(helper, attachment.name(), attachment.file());
+        }
+
+        if (mode == DeliveryMode.MANIFEST) {
+            Map<String, Object> manifestJson = new LinkedHashMap<>();
+            manifestJson.put("orderReference", orderReference);
+            manifestJson.put("part", part);
+            manifestJson.put("parts", parts);
+            manifestJson.put("files", partItems.stream().map(PlannedItem::manifestEntry).toList());
+            helper.addAttachment("print-manifest.json",
+                    new ByteArrayResource(objectMapper.writeValueAsBytes(manifestJson)), "application/json");
+        }
+        log.debug("Built email '{}' with {} attachment(s)", subject, partAttachments.size());
+        return message;
+    }
+
+    /**
+     * Like {@link MimeMessageHelper#addAttachment(String, java.io.File)}, but the part reads the file
+     * through a {@link MappedFileDataSource} and declares base64 up front. Without the declared
+     * encoding, saveChanges() would read every attachment once just to choose one; with it, the
+     * bytes are read only while being written to the SMTP connection, encoded on the fly.
+     */
+    private void attachFile(MimeMessageHelper helper, String attachmentName, Path file) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDisposition(Part.ATTACHMENT);
+        try {
+            part.setFileName(helper.isEncodeFilenames() ? MimeUtility.encodeText(attachmentName) : attachmentName);
+        } catch (UnsupportedEncodingException e) {
+            throw new MessagingException("Failed to encode attachment filename", e);
+        }
+        part.setDataHandler(new DataHandler(new MappedFileDataSource(file, helper.getFileTypeMap().getContentType(attachmentName))));
+        part.setHeader("Content-Transfer-Encoding", "base64");
+        helper.getRootMimeMultipart().addBodyPart(part);
+    }
+
+    /**
+     * Writes {@code copies} collated copies of the file to a temp PDF, putting an image on a page of
+     * its own first. Returns null if the file is neither a PDF nor an image, or cannot be expanded
+     * (a damaged or encrypted PDF, an unreadable image); the caller then attaches each copy instead.
+     */
+    private Path expandCopies(Path file, int copies, List<Path> scratchFiles, String orderReference) {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean image = name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png");
+        if (!image && !name.endsWith(".pdf")) {
+            return null;
+        }
+        try {
+            Path source = file;
+            if (image) {
+                source = Files.createTempFile("print-image-", ".pdf");
+                scratchFiles.add(source);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(source))) {
+                    photoToPdfService.imageToPdf(file, out);
+                }
+            }
+            Path expanded = Files.createTempFile("print-copies-", ".pdf");
+            scratchFiles.add(expanded);
+            pdfCopyExpander.expand(source, expanded, copies);
+            return expanded;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not expand {} to {} copies for order {}; attaching each copy instead: {}",
+                    file.getFileName(), copies, orderReference, e.getMessage());
+            return null;
+        }
+    }
+
+    // "report.pdf" -> "report (copy 2).pdf"
+    private static String copyName(String fileName, int copy) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+            return String.format("%s (copy %d)%s", fileName.substring(0, dotIndex), copy, fileName.substring(dotIndex));
+        }
+        return String.format("%s (copy %d)", fileName, copy);
+    }
+
+    // "report.pdf" -> "report (3 copies).pdf", "photo.jpg" -> "photo (3 copies).pdf"
+    private static String copiesName(String fileName, int copies) {
+        int dotIndex = fileName.lastIndexOf('.');
+        String baseName = dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
+        return String.format("%s (%d copies).pdf", baseName, copies);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A paid order waiting to reach its printer, by email or IPP (see {@link PrintDeliveryChannel}).
+ * The order's files stay on disk until every part was accepted; the unique order reference makes
+ * a repeated enqueue a no-op.
+ */
+@Table(name = "print_jobs", indexes = {
+        @Index(name = "ux_print_jobs_order_reference", columnList = "order_reference", unique = true),
+        @Index(name = "ix_print_jobs_due", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@Entity
+public class PrintJob {
+
+    public enum Status { PENDING, SENT, DEAD }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_reference", nullable = false, length = 128)
+    private String orderReference;
+
+    // The FileOrderItems as JSON, so legacy orders without a stored PrintOrder can be queued too
+    @Lob
+    @Column(name = "items", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String items;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // When the job is due; while an attempt runs this is its lease, so a crashed attempt is picked up again
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // For orders delivered in several parts (emails, IPP jobs): how many, and which (comma-separated)
+    // were accepted, so a retry resends only the rest
+    @Column(name = "part_count")
+    private Integer partCount;
+
+    @Column(name = "sent_parts", length = 1000)
+    private String sentParts;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.pdf.printer.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdf.printer.dto.FileOrderItem;
+import com.pdf.printer.repo.PrintJobRepository;
+
+/**
+ * Persistence side of the print job queue, the same lease-and-backoff scheme as
+ * {@link WebhookOutbox}: jobs are leased by {@link PrintJobWorker}, retried with exponential
+ * backoff and marked DEAD once out of attempts. A dead job keeps its files so it can be resent.
+ */
+@Service
+public class PrintJobQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PrintJobQueue.class);
+
+    private final PrintJobRepository jobRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    public PrintJobQueue(PrintJobRepository jobRepository,
+                         @Value("${print.mail.max-attempts:10}") int maxAttempts,
+                         @Value("${print.mail.base-backoff-seconds:30}") long baseBackoffSeconds,
+                         @Value("${print.mail.max-backoff-minutes:60}") long maxBackoffMinutes,
+                         @Value("${print.mail.lease-minutes:10}") long leaseMinutes) {
+        this.jobRepository = jobRepository;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofSeconds(baseBackoffSeconds);
+        this.maxBackoff = Duration.ofMinutes(maxBackoffMinutes);
+        this.lease = Duration.ofMinutes(leaseMinutes);
+    }
+
+    /**
+     * Queues an order for delivery to its printer.
+     *
+     * @return false if the order was already queued
+     */
+    public boolean enqueue(String orderReference, List<FileOrderItem> items) {
+        if (jobRepository.findByOrderReference(orderReference).isPresent()) {
+            return false;
+        }
+        PrintJob job = new PrintJob();
+        job.setOrderReference(orderReference);
+        try {
+            job.setItems(objectMapper.writeValueAsString(items));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize items of order " + orderReference, e);
+        }
+        try {
+            jobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent enqueue of the same order won the unique index
+            return false;
+        }
+        log.info("Queued print job {} for order {} ({} items)", job.getId(), orderReference, items.size());
+        return true;
+    }
+
+    public List<FileOrderItem> items(PrintJob job) throws IOException {
+        return objectMapper.readValue(job.getItems(), new TypeReference<List<FileOrderItem>>() { });
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findDue(int limit) {
+        return jobRepository.findDueIds(PrintJob.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Leases a due job for one attempt; it becomes due again when the lease runs out.
+     */
+    @Transactional
+    public Optional<PrintJob> claim(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobRepository.claim(jobId, now, now.plus(lease)) == 0) {
+            return Optional.empty();
+        }
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * The parts of a job already accepted by the server in earlier attempts. If the order now splits
+     * into a different number of parts (e.g. the size budget changed), none of them count.
+     */
+    public Set<Integer> sentParts(PrintJob job, int parts) {
+        if (job.getPartCount() == null || job.getPartCount() != parts || job.getSentParts() == null
+                || job.getSentParts().isBlank()) {
+            return Set.of();
+        }
+        Set<Integer> sent = new TreeSet<>();
+        for (String part : job.getSentParts().split(",")) {
+            sent.add(Integer.parseInt(part.trim()));
+        }
+        return sent;
+    }
+
+    @Transactional
+    public void markPartsSent(Long jobId, int parts, Set<Integer> sent) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            Set<Integer> all = new TreeSet<>(sentParts(job, parts));
+            all.addAll(sent);
+            job.setPartCount(parts);
+            job.setSentParts(all.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        });
+    }
+
+    @Transactional
+    public void markSent(Long jobId) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(PrintJob.Status.SENT);
+            job.setSentAt(LocalDateTime.now());
+            job.setLastError(null);
+        });
+    }
+
+    /**
+     * Schedules the next attempt, or gives up if the job is out of attempts or the failure is permanent.
+     */
+    @Transactional
+    public void recordFailure(Long jobId, String error, boolean permanent) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            String message = error == null ? "unknown error" : error.length() > 1000 ? error.substring(0, 1000) : error;
+            job.setLastError(message);
+            if (permanent || job.getAttempts() >= maxAttempts) {
+                job.setStatus(PrintJob.Status.DEAD);
+                log.error("Print job {} for order {} failed for good after {} attempts; its files are kept: {}",
+                        job.getId(), job.getOrderReference(), job.getAttempts(), message);
+                return;
+            }
+            Duration delay = backoff(job.getAttempts());
+            job.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            log.warn("Print job {} for order {} failed (attempt {}/{}), retrying in {}s: {}",
+                    job.getId(), job.getOrderReference(), job.getAttempts(), maxAttempts, delay.toSeconds(), message);
+        });
+    }
+
+    /**
+     * base * 2^(attempt-1), capped, with up to 20% jitter.
+     */
+    private Duration backoff(int attempt) {
+        long millis = baseBackoff.toMillis() << Math.min(Math.max(attempt - 1, 0), 20);
+        millis = Math.min(millis, maxBackoff.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+}
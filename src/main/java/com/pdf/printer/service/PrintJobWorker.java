@@ -0,0 +1,140 @@
+package com.pdf.printer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers queued print jobs. Each poll hands the due jobs to a small pool of workers, one job at a
+ * time, without waiting for them: deliveries can take as long as a slow printer or mail server
+ * does, and the scheduler thread is shared with the webhook outbox. A job goes out through the first {@link PrintDeliveryChannel} that supports its shop (IPP
+ * straight to the printer when the shop has one, email otherwise). Files are released only after
+ * every part of the order was accepted.
+ */
+@Component
+public class PrintJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(PrintJobWorker.class);
+
+    private final PrintJobQueue queue;
+    private final PrintFulfillmentService fulfillmentService;
+    private final ShopRegistry shopRegistry;
+    private final List<PrintDeliveryChannel> channels;
+    private final ExecutorService workers;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+
+    public PrintJobWorker(PrintJobQueue queue, PrintFulfillmentService fulfillmentService, ShopRegistry shopRegistry,
+                          List<PrintDeliveryChannel> channels,
+                          @Value("${print.mail.workers:2}") int workerCount,
+                          @Value("${print.mail.batch-size:20}") int batchSize) {
+        this.queue = queue;
+        this.fulfillmentService = fulfillmentService;
+        this.shopRegistry = shopRegistry;
+        this.channels = channels;
+        this.batchSize = batchSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "print-mail-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${print.mail.poll-interval-ms:2000}")
+    public void sendDueJobs() {
+        submitDueJobs();
+    }
+
+    /**
+     * Hands the due jobs not already handed over by an earlier poll to the workers, at most
+     * {@code batchSize} in flight at once.
+     */
+    List<Future<?>> submitDueJobs() {
+        List<Future<?>> submitted = new ArrayList<>();
+        for (Long jobId : queue.findDue(batchSize)) {
+            if (inFlight.size() >= batchSize) {
+                break;
+            }
+            if (!inFlight.add(jobId)) {
+                continue;
+            }
+            submitted.add(workers.submit(() -> {
+                try {
+                    queue.claim(jobId).ifPresent(this::send);
+                } finally {
+                    inFlight.remove(jobId);
+                }
+            }));
+        }
+        return submitted;
+    }
+
+    private void send(PrintJob job) {
+        List<FileOrderItem> items;
+        try {
+            items = queue.items(job);
+        } catch (Exception e) {
+            queue.recordFailure(job.getId(), "Unreadable items: " + e.getMessage(), true);
+            return;
+        }
+        int printerId = items.isEmpty() ? -1 : items.get(0).getPrinterId();
+        Optional<ShopRegistry.ShopInfo> shop = shopRegistry.get(printerId);
+        Optional<PrintDeliveryChannel> channel = shop.flatMap(s -> channels.stream().filter(c -> c.supports(s)).findFirst());
+        if (channel.isEmpty()) {
+            // The shop may just not be configured yet, so this is retried like any other failure
+            queue.recordFailure(job.getId(), "No delivery channel for printer " + printerId, false);
+            return;
+        }
+
+        PrintDeliveryChannel.Outcome outcome;
+        try {
+            outcome = channel.get().deliver(shop.get(), items, job.getOrderReference(), parts -> queue.sentParts(job, parts));
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            outcome = new PrintDeliveryChannel.Outcome(0, Set.of(), e);
+        }
+        if (outcome.parts() > 1 && !outcome.delivered().isEmpty()) {
+            queue.markPartsSent(job.getId(), outcome.parts(), outcome.delivered());
+        }
+        Exception failure = outcome.failure();
+        if (failure != null) {
+            log.error("Delivering print job {} for order {} by {} failed: {}", job.getId(), job.getOrderReference(),
+                    channel.get().name(), failure.getMessage());
+            queue.recordFailure(job.getId(), failure.getClass().getSimpleName() + ": " + failure.getMessage(),
+                    channel.get().isPermanent(failure));
+            return;
+        }
+        queue.markSent(job.getId());
+        log.info("Print job for order {} delivered by {} (attempt {})", job.getOrderReference(), channel.get().name(),
+                job.getAttempts());
+        // Only now is the print job safe to lose locally
+        int[] releases = fulfillmentService.releaseFiles(items, job.getOrderReference());
+        log.info("Released files of order {} - Success: {}, Failures: {}", job.getOrderReference(), releases[0], releases[1]);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
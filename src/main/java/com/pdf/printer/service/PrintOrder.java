@@ -0,0 +1,74 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A print order as initiated by the customer, keyed by the Razorpay order id so the payment
+ * webhook can find its items with one indexed lookup.
+ */
+@Table(name = "print_orders", indexes = {
+        @Index(name = "ux_print_orders_order_id", columnList = "order_id", unique = true)
+})
+@Data
+@NoArgsConstructor
+@Entity
+public class PrintOrder {
+
+    public enum Status { CREATED, PAID, SKIPPED_ZERO_AMOUNT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, length = 64)
+    private String orderId; // Razorpay order id (or the synthetic id of a zero-amount order)
+
+    @Column(name = "receipt_id", nullable = false, length = 64)
+    private String receiptId;
+
+    @Column(name = "printer_id", nullable = false)
+    private int printerId;
+
+    @Column(name = "amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount; // Rupees
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 32)
+    private Status status;
+
+    @Column(name = "payment_id", length = 255)
+    private String paymentId;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id ASC")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<PrintOrderItem> items = new ArrayList<>();
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "paid_at")
+    private LocalDateTime paidAt;
+
+    public void addItem(PrintOrderItem item) {
+        item.setOrder(this);
+        items.add(item);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,48 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * One file of a {@link PrintOrder}, with the options the customer paid for.
+ */
+@Table(name = "print_order_items")
+@Data
+@NoArgsConstructor
+@Entity
+public class PrintOrderItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "print_order_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PrintOrder order;
+
+    @Column(name = "unique_id", length = 64)
+    private String uniqueId;
+
+    @Column(name = "file_name", nullable = false, length = 255)
+    private String fileName;
+
+    @Column(name = "page_count", nullable = false)
+    private int pageCount;
+
+    @Column(name = "print_type", nullable = false)
+    private int printType; // 0 for B&W, 1 for Color
+
+    @Column(name = "number_of_copies", nullable = false)
+    private int numberOfCopies;
+
+    @Column(name = "printer_id", nullable = false)
+    private int printerId;
+
+    @Column(name = "duplex", nullable = false)
+    private boolean duplex;
+}
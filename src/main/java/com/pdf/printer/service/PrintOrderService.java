@@ -0,0 +1,78 @@
+package com.pdf.printer.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdf.printer.dto.FileOrderItem;
+import com.pdf.printer.repo.PrintOrderRepository;
+
+/**
+ * Stores what was ordered when a payment is initiated, so the payment webhook no longer has to
+ * carry the item list through Razorpay order notes (which are size-limited).
+ */
+@Service
+public class PrintOrderService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrintOrderService.class);
+
+    private final PrintOrderRepository printOrderRepository;
+
+    public PrintOrderService(PrintOrderRepository printOrderRepository) {
+        this.printOrderRepository = printOrderRepository;
+    }
+
+    @Transactional
+    public PrintOrder createOrder(String orderId, String receiptId, List<FileOrderItem> items, int printerId,
+                                  int amountInRupees, String currency, PrintOrder.Status status) {
+        PrintOrder order = new PrintOrder();
+        order.setOrderId(orderId);
+        order.setReceiptId(receiptId);
+        order.setPrinterId(printerId);
+        order.setAmount(BigDecimal.valueOf(amountInRupees));
+        order.setCurrency(currency);
+        order.setStatus(status);
+        for (FileOrderItem item : items) {
+            PrintOrderItem orderItem = new PrintOrderItem();
+            orderItem.setUniqueId(item.getUniqueId());
+            orderItem.setFileName(item.getFileName());
+            orderItem.setPageCount(item.getPageCount());
+            orderItem.setPrintType(item.getPrintType());
+            orderItem.setNumberOfCopies(item.getNumberOfCopies());
+            orderItem.setPrinterId(item.getPrinterId());
+            orderItem.setDuplex(item.isDuplex());
+            order.addItem(orderItem);
+        }
+        PrintOrder saved = printOrderRepository.save(order);
+        log.info("Stored print order {} with {} items (Rs. {}, status {})", orderId, items.size(), amountInRupees, status);
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<PrintOrder> findByOrderId(String orderId) {
+        return printOrderRepository.findByOrderId(orderId);
+    }
+
+    @Transactional
+    public void markPaid(String orderId, String paymentId) {
+        printOrderRepository.findByOrderId(orderId).ifPresent(order -> {
+            order.setStatus(PrintOrder.Status.PAID);
+            order.setPaymentId(paymentId);
+            order.setPaidAt(LocalDateTime.now());
+        });
+    }
+
+    public static List<FileOrderItem> toFileOrderItems(PrintOrder order) {
+        return order.getItems().stream()
+                .map(item -> new FileOrderItem(item.getUniqueId(), item.getFileName(), item.getPageCount(),
+                        item.getPrintType(), item.getNumberOfCopies(), 0, item.getPrinterId(), item.isDuplex()))
+                .collect(Collectors.toList());
+    }
+}
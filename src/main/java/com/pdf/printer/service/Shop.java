@@ -0,0 +1,80 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A print shop (kiosk): where its orders are sent (email, or IPP straight to a LAN printer),
+ * whose dashboard they show up on and its price tiers. The id is the printer id in the shop's QR code URL ({@code /print/{id}}).
+ */
+@Table(name = "shops", indexes = {
+        @Index(name = "ux_shops_phone", columnList = "phone", unique = true)
+})
+@Data
+@NoArgsConstructor
+@Entity
+public class Shop {
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "name", nullable = false, length = 255)
+    private String name;
+
+    @Column(name = "email", nullable = false, length = 255)
+    private String email;
+
+    // When set, orders go to this printer over IPP instead of by email, e.g. ipp://192.168.1.20/ipp/print
+    @Column(name = "ipp_uri", length = 255)
+    private String ippUri;
+
+    @Column(name = "phone", nullable = false, length = 10)
+    private String phone;
+
+    @Column(name = "range1", nullable = false)
+    private int range1;
+
+    @Column(name = "range2", nullable = false)
+    private int range2;
+
+    @Column(name = "range3", nullable = false)
+    private int range3;
+
+    @Column(name = "bw_cost_range1", nullable = false)
+    private int bwCostRange1;
+
+    @Column(name = "bw_cost_range2", nullable = false)
+    private int bwCostRange2;
+
+    @Column(name = "bw_cost_range3", nullable = false)
+    private int bwCostRange3;
+
+    @Column(name = "color_cost_range1", nullable = false)
+    private int colorCostRange1;
+
+    @Column(name = "color_cost_range2", nullable = false)
+    private int colorCostRange2;
+
+    @Column(name = "color_cost_range3", nullable = false)
+    private int colorCostRange3;
+
+    @Column(name = "active", nullable = false)
+    private boolean active = true;
+
+    // Bumped on every update; the registry's change stamp sums these to notice edits made by other instances
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,223 @@
+package com.pdf.printer.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pdf.printer.controller.Printer;
+import com.pdf.printer.dto.ShopRequest;
+import com.pdf.printer.repo.ShopRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory index of the shops table, keyed by id and by phone. Lookups read an immutable
+ * snapshot through one volatile read and never touch the database; edits through the admin API
+ * build a new snapshot and swap it in, and edits made by other instances are picked up by a
+ * periodic change-stamp check. The {@link Printer} enum only seeds an empty table.
+ */
+@Service
+public class ShopRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopRegistry.class);
+
+    /** Immutable copy of a shop row. */
+    public record ShopInfo(int id, String name, String email, String phone, int range1, int range2, int range3,
+                           int bwCostRange1, int bwCostRange2, int bwCostRange3,
+                           int colorCostRange1, int colorCostRange2, int colorCostRange3, boolean active,
+                           String ippUri) {
+
+        static ShopInfo fromEntity(Shop shop) {
+            return new ShopInfo(shop.getId(), shop.getName(), shop.getEmail(), shop.getPhone(), shop.getRange1(),
+                    shop.getRange2(), shop.getRange3(), shop.getBwCostRange1(), shop.getBwCostRange2(),
+                    shop.getBwCostRange3(), shop.getColorCostRange1(), shop.getColorCostRange2(),
+                    shop.getColorCostRange3(), shop.isActive(), shop.getIppUri());
+        }
+
+        public static ShopInfo fromSeed(Printer printer) {
+            return new ShopInfo(Integer.parseInt(printer.getId()), printer.getName(), printer.getEmail(),
+                    printer.getPhone(), printer.getRange1(), printer.getRange2(), printer.getRange3(),
+                    printer.getB_cost_range1(), printer.getB_cost_range2(), printer.getB_cost_range3(),
+                    printer.getC_cost_range1(), printer.getC_cost_range2(), printer.getC_cost_range3(), true, null);
+        }
+    }
+
+    /** One consistent version of the registry. */
+    public record Snapshot(long version, long changeStamp, Map<Integer, ShopInfo> byId, Map<String, ShopInfo> byPhone) {
+
+        public Collection<ShopInfo> shops() {
+            return byId.values();
+        }
+    }
+
+    private final ShopRepository shopRepository;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, -1, Map.of(), Map.of()));
+    private final List<Consumer<Snapshot>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    public ShopRegistry(ShopRepository shopRepository) {
+        this.shopRepository = shopRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        if (shopRepository.count() == 0) {
+            for (Printer printer : Printer.values()) {
+                shopRepository.save(toEntity(ShopInfo.fromSeed(printer), new Shop()));
+            }
+            log.info("Seeded shops table with {} printers", Printer.values().length);
+        }
+        reload();
+    }
+
+    /**
+     * Registers a listener that is called with every new snapshot, and right away with the current one.
+     */
+    public void onReload(Consumer<Snapshot> listener) {
+        reloadListeners.add(listener);
+        listener.accept(snapshot.get());
+    }
+
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    public Optional<ShopInfo> get(int id) {
+        return Optional.ofNullable(snapshot.get().byId().get(id));
+    }
+
+    public Optional<ShopInfo> get(String id) {
+        try {
+            return get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Optional<ShopInfo> findByPhone(String phone) {
+        return Optional.ofNullable(snapshot.get().byPhone().get(phone));
+    }
+
+    public String getEmailById(int id) {
+        return get(id).map(ShopInfo::email).orElse(null);
+    }
+
+    public String getPhoneById(int id) {
+        return get(id).map(ShopInfo::phone).orElse(null);
+    }
+
+    public String getNameByPhone(String phone) {
+        return findByPhone(phone).map(ShopInfo::name).orElse(null);
+    }
+
+    /**
+     * Rebuilds the index from the table and publishes it.
+     */
+    public synchronized Snapshot reload() {
+        long changeStamp = shopRepository.changeStamp();
+        List<Shop> shops = shopRepository.findAll();
+        Map<Integer, ShopInfo> byId = new HashMap<>();
+        Map<String, ShopInfo> byPhone = new HashMap<>();
+        for (Shop shop : shops) {
+            ShopInfo info = ShopInfo.fromEntity(shop);
+            byId.put(info.id(), info);
+            byPhone.put(info.phone(), info);
+        }
+        Snapshot next = new Snapshot(snapshot.get().version() + 1, changeStamp, Map.copyOf(byId), Map.copyOf(byPhone));
+        snapshot.set(next);
+        for (Consumer<Snapshot> listener : reloadListeners) {
+            listener.accept(next);
+        }
+        log.info("Loaded shop registry version {} with {} shops", next.version(), byId.size());
+        return next;
+    }
+
+    /**
+     * Picks up edits made through other instances; a no-op while the table is unchanged.
+     */
+    @Scheduled(fixedDelayString = "${print.shops.refresh-interval-ms:30000}", initialDelayString = "${print.shops.refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
+        try {
+            if (shopRepository.changeStamp() != snapshot.get().changeStamp()) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not check the shops table for changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates or updates a shop and reloads the index.
+     *
+     * @throws IllegalArgumentException if the request is invalid or the phone belongs to another shop
+     */
+    public synchronized ShopInfo save(int id, ShopRequest request) {
+        validate(id, request);
+        Shop shop = shopRepository.findById(id).orElseGet(Shop::new);
+        ShopInfo info = new ShopInfo(id, request.getName().trim(), request.getEmail().trim(), request.getPhone(),
+                request.getRange1(), request.getRange2(), request.getRange3(), request.getBwCostRange1(),
+                request.getBwCostRange2(), request.getBwCostRange3(), request.getColorCostRange1(),
+                request.getColorCostRange2(), request.getColorCostRange3(), request.isActive(),
+                request.getIppUri() == null || request.getIppUri().isBlank() ? null : request.getIppUri().trim());
+        shopRepository.saveAndFlush(toEntity(info, shop));
+        log.info("Saved shop {} ({})", id, info.name());
+        reload();
+        return info;
+    }
+
+    private void validate(int id, ShopRequest request) {
+        if (request.getName() == null || request.getName().isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (request.getEmail() == null || !request.getEmail().contains("@")) {
+            throw new IllegalArgumentException("A valid email is required");
+        }
+        if (request.getIppUri() != null && !request.getIppUri().isBlank()
+                && !request.getIppUri().trim().matches("(?i)(ipps?|https?)://[^/\\s]+(/\\S*)?")) {
+            throw new IllegalArgumentException("IPP URI must look like ipp://host[:port]/path");
+        }
+        if (request.getPhone() == null || !request.getPhone().matches("\\d{10}")) {
+            throw new IllegalArgumentException("Phone must be 10 digits");
+        }
+        if (request.getRange1() < 0 || request.getRange1() > request.getRange2() || request.getRange2() > request.getRange3()) {
+            throw new IllegalArgumentException("Ranges must satisfy 0 <= range1 <= range2 <= range3");
+        }
+        if (request.getBwCostRange1() < 0 || request.getBwCostRange2() < 0 || request.getBwCostRange3() < 0
+                || request.getColorCostRange1() < 0 || request.getColorCostRange2() < 0 || request.getColorCostRange3() < 0) {
+            throw new IllegalArgumentException("Costs cannot be negative");
+        }
+        shopRepository.findByPhone(request.getPhone())
+                .filter(other -> other.getId() != id)
+                .ifPresent(other -> {
+                    throw new IllegalArgumentException("Phone " + request.getPhone() + " already belongs to shop " + other.getId());
+                });
+    }
+
+    private static Shop toEntity(ShopInfo info, Shop shop) {
+        shop.setId(info.id());
+        shop.setName(info.name());
+        shop.setEmail(info.email());
+        shop.setPhone(info.phone());
+        shop.setRange1(info.range1());
+        shop.setRange2(info.range2());
+        shop.setRange3(info.range3());
+        shop.setBwCostRange1(info.bwCostRange1());
+        shop.setBwCostRange2(info.bwCostRange2());
+        shop.setBwCostRange3(info.bwCostRange3());
+        shop.setColorCostRange1(info.colorCostRange1());
+        shop.setColorCostRange2(info.colorCostRange2());
+        shop.setColorCostRange3(info.colorCostRange3());
+        shop.setActive(info.active());
+        shop.setIppUri(info.ippUri());
+        return shop;
+    }
+}
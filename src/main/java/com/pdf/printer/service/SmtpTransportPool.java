@@ -0,0 +1,144 @@
+package com.pdf.printer.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * A fixed number of SMTP connections that stay open between messages, so a batch of print emails
+ * pays for the TCP, TLS and AUTH handshakes once instead of once per message. A connection is
+ * opened on first use and reopened when the server has dropped it (idle timeout, restart).
+ */
+public class SmtpTransportPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final long idleTimeoutMillis;
+    private final BlockingQueue<Connection> available;
+    private final List<Connection> all = new ArrayList<>();
+
+    public SmtpTransportPool(Session session, String host, int port, String username, String password,
+                             int size, Duration idleTimeout) {
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.available = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Connection connection = new Connection();
+            all.add(connection);
+            available.add(connection);
+        }
+    }
+
+    /**
+     * Borrows a connection, waiting for one if all are in use. Close the lease to return it.
+     */
+    public Connection acquire() throws InterruptedException {
+        return available.take();
+    }
+
+    /**
+     * Closes connections that have not sent anything for the idle timeout. Busy ones are left alone.
+     */
+    public void closeIdle() {
+        long now = System.currentTimeMillis();
+        for (int i = available.size(); i > 0; i--) {
+            Connection connection = available.poll();
+            if (connection == null) {
+                return;
+            }
+            if (connection.transport != null && now - connection.lastUsed > idleTimeoutMillis) {
+                connection.disconnect();
+            }
+            available.add(connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : all) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * One pooled SMTP connection, usable by one thread at a time.
+     */
+    public final class Connection implements AutoCloseable {
+
+        private Transport transport;
+        private long lastUsed;
+
+        private Connection() {
+        }
+
+        /**
+         * Sends the message over this connection. If that fails because the server had dropped the
+         * connection, it is reopened and the message sent once more; a rejection by the server is
+         * thrown as is.
+         */
+        public void send(MimeMessage message) throws MessagingException {
+            message.saveChanges();
+            boolean reused = transport != null;
+            try {
+                transport().sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                // A live connection means the server answered and refused; a dead one may just have timed out
+                boolean stale = reused && !transport.isConnected();
+                disconnect();
+                if (!stale) {
+                    throw e;
+                }
+                log.info("SMTP connection to {}:{} was closed by the server; reconnecting", host, port);
+                transport().sendMessage(message, message.getAllRecipients());
+            }
+            lastUsed = System.currentTimeMillis();
+        }
+
+        private Transport transport() throws MessagingException {
+            if (transport == null) {
+                Transport opened = session.getTransport("smtp");
+                opened.connect(host, port, username, password);
+                transport = opened;
+                log.debug("Opened SMTP connection to {}:{}", host, port);
+            }
+            return transport;
+        }
+
+        private void disconnect() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+            transport = null;
+        }
+
+        /** Returns the connection to the pool, still open. */
+        @Override
+        public void close() {
+            available.add(this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.pdf.printer.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Small JPEG previews of the first pages of stored blobs, rendered on first request and cached
+ * under {@code <upload-dir>/thumbs}. Blob names are content-addressed, so a thumbnail never
+ * changes once written and can be cached by browsers indefinitely. Thumbnails are deleted together
+ * with their blob.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    // Thumbnails are at most this many times as tall as wide, however narrow the page
+    private static final int MAX_ASPECT = 4;
+    private static final Pattern BLOB_NAME = Pattern.compile("(orig|custom|bw)_[0-9a-f]{64}[A-Za-z0-9_\\-]*\\.(pdf|jpg|jpeg|png)");
+
+    private final ContentStore contentStore;
+    private final Path thumbnailDir;
+    private final int width;
+    private final int maxPages;
+    private final float quality;
+    private final Semaphore renderSlots;
+    private final Map<String, Object> renderLocks = new ConcurrentHashMap<>();
+
+    public ThumbnailService(ContentStore contentStore,
+                            @Value("${file.upload-dir}") String uploadDir,
+                            @Value("${print.thumbnail.width:320}") int width,
+                            @Value("${print.thumbnail.pages:3}") int maxPages,
+                            @Value("${print.thumbnail.quality:0.75}") float quality) {
+        this.contentStore = contentStore;
+        this.thumbnailDir = Path.of(uploadDir).toAbsolutePath().normalize().resolve("thumbs");
+        this.width = width;
+        this.maxPages = maxPages;
+        this.quality = quality;
+        this.renderSlots = new Semaphore(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        contentStore.onDelete(this::deleteThumbnails);
+    }
+
+    /**
+     * URLs of the thumbnails for the first pages of a blob. Nothing is rendered until a URL is requested.
+     */
+    public List<String> thumbnailUrls(String blobFileName, int pageCount) {
+        List<String> urls = new ArrayList<>();
+        if (blobFileName == null || !BLOB_NAME.matcher(blobFileName).matches()) {
+            return urls;
+        }
+        for (int page = 1; page <= Math.min(pageCount, maxPages); page++) {
+            urls.add("/print/thumbnails/" + blobFileName + "/" + page);
+        }
+        return urls;
+    }
+
+    /**
+     * ETag for a thumbnail; stable because the blob it is rendered from never changes.
+     */
+    public String etag(String blobFileName, int page) {
+        return "\"" + blobFileName + "-p" + page + "-w" + width + "\"";
+    }
+
+    /**
+     * Returns the cached thumbnail of a page, rendering it first if needed.
+     *
+     * @throws IllegalArgumentException if the blob name or page is not one we serve thumbnails for
+     */
+    public Path thumbnail(String blobFileName, int page) throws IOException {
+        if (!BLOB_NAME.matcher(blobFileName).matches() || page < 1 || page > maxPages
+                || (page > 1 && !blobFileName.endsWith(".pdf"))) {
+            throw new IllegalArgumentException("No thumbnail for " + blobFileName + " page " + page);
+        }
+        Path target = thumbnailDir.resolve(thumbnailPrefix(blobFileName) + page + "_w" + width + ".jpg");
+        if (Files.exists(target)) {
+            return target;
+        }
+        Path source = contentStore.resolve(blobFileName);
+        if (!Files.exists(source)) {
+            throw new IllegalArgumentException("Unknown file " + blobFileName);
+        }
+        Object lock = renderLocks.computeIfAbsent(target.getFileName().toString(), k -> new Object());
+        try {
+            synchronized (lock) {
+                if (Files.exists(target)) {
+                    return target;
+                }
+                renderSlots.acquireUninterruptibly();
+                try {
+                    long started = System.nanoTime();
+                    BufferedImage image = blobFileName.endsWith(".pdf") ? renderPdfPage(source, page) : scaleImage(source);
+                    writeAtomically(image, target);
+                    log.info("Rendered thumbnail {} in {} ms", target.getFileName(), (System.nanoTime() - started) / 1_000_000);
+                } finally {
+                    renderSlots.release();
+                }
+                return target;
+            }
+        } finally {
+            renderLocks.remove(target.getFileName().toString(), lock);
+        }
+    }
+
+    private BufferedImage renderPdfPage(Path source, int page) throws IOException {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(source.toFile()), "", null, null,
+                IOUtils.createTempFileOnlyStreamCache())) {
+            if (page > document.getNumberOfPages()) {
+                throw new IllegalArgumentException("Page " + page + " is beyond the document's " + document.getNumberOfPages() + " pages");
+            }
+            PDPage pdPage = document.getPage(page - 1);
+            PDRectangle box = pdPage.getCropBox();
+            boolean rotated = pdPage.getRotation() % 180 != 0;
+            float pageWidth = rotated ? box.getHeight() : box.getWidth();
+            float pageHeight = rotated ? box.getWidth() : box.getHeight();
+            float scale = pageWidth > 0 ? width / pageWidth : 1f;
+            // A page can declare any MediaBox; bound the height too, or a sliver page renders millions of pixels tall
+            if (pageHeight > 0) {
+                scale = Math.min(scale, width * MAX_ASPECT / pageHeight);
+            }
+            return new PDFRenderer(document).renderImage(page - 1, scale, ImageType.RGB);
+        }
+    }
+
+    /**
+     * Decodes an uploaded image with source subsampling, so a 12 MP photo is never fully decoded,
+     * then scales it to the thumbnail width.
+     */
+    private BufferedImage scaleImage(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                int maxHeight = width * MAX_ASPECT;
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(sourceWidth / (width * 2), sourceHeight / (maxHeight * 2)));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                float scale = Math.min(width / (float) decoded.getWidth(), maxHeight / (float) decoded.getHeight());
+                int scaledWidth = Math.max(1, Math.round(decoded.getWidth() * scale));
+                int height = Math.max(1, Math.round(decoded.getHeight() * scale));
+                BufferedImage scaled = new BufferedImage(scaledWidth, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = scaled.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.drawImage(decoded, 0, 0, scaledWidth, height, java.awt.Color.WHITE, null);
+                } finally {
+                    graphics.dispose();
+                }
+                return scaled;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeAtomically(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(thumbnailDir);
+        Path temp = thumbnailDir.resolve("part_" + UUID.randomUUID() + ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void deleteThumbnails(String blobFileName) {
+        if (!Files.isDirectory(thumbnailDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(thumbnailDir, thumbnailPrefix(blobFileName) + "*.jpg")) {
+            for (Path thumbnail : thumbnails) {
+                Files.deleteIfExists(thumbnail);
+                log.debug("Deleted thumbnail {}", thumbnail.getFileName());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not delete thumbnails of {}: {}", blobFileName, e.getMessage());
+        }
+    }
+
+    private static String thumbnailPrefix(String blobFileName) {
+        int dot = blobFileName.lastIndexOf('.');
+        // "." cannot occur in a blob's base name, so one blob's prefix never matches another's thumbnails
+        return (dot > 0 ? blobFileName.substring(0, dot) : blobFileName) + ".p";
+    }
+}
@@ -0,0 +1,52 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A webhook event that could not be fulfilled, kept with its payload for manual processing.
+ */
+@Table(name = "webhook_dead_letters", indexes = {
+        @Index(name = "ix_webhook_dead_letters_payment_id", columnList = "payment_id")
+})
+@Data
+@NoArgsConstructor
+@Entity
+public class WebhookDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(name = "payment_id", nullable = false, length = 255)
+    private String paymentId;
+
+    @Column(name = "order_id", length = 64)
+    private String orderId;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "failed_at", updatable = false)
+    private LocalDateTime failedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        failedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdf.printer.service;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A verified Razorpay webhook waiting to be fulfilled (transactional outbox). The unique payment id
+ * makes Razorpay's retries of the same capture collapse into one event.
+ */
+@Table(name = "webhook_events", indexes = {
+        @Index(name = "ux_webhook_events_payment_id", columnList = "payment_id", unique = true),
+        @Index(name = "ix_webhook_events_due", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@Entity
+public class WebhookEvent {
+
+    public enum Status { PENDING, DONE, DEAD }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false, length = 255)
+    private String paymentId;
+
+    @Column(name = "order_id", length = 64)
+    private String orderId;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // When the event is due; while an attempt runs this is its lease, so a crashed attempt is picked up again
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // Set by events fulfilled before print emails were queued as print jobs (see PaymentWebhookDispatcher)
+    @Column(name = "email_sent_at")
+    private LocalDateTime emailSentAt;
+
+    @Column(name = "received_at", updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        receivedAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = receivedAt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.pdf.printer.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdf.printer.repo.WebhookDeadLetterRepository;
+import com.pdf.printer.repo.WebhookEventRepository;
+
+/**
+ * Persistence side of webhook processing: events are recorded once per payment id, leased by the
+ * dispatcher, retried with exponential backoff and moved to the dead-letter table once they run
+ * out of attempts. Each method is its own short transaction; no transaction spans the email.
+ */
+@Service
+public class WebhookOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookOutbox.class);
+
+    private final WebhookEventRepository eventRepository;
+    private final WebhookDeadLetterRepository deadLetterRepository;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    public WebhookOutbox(WebhookEventRepository eventRepository, WebhookDeadLetterRepository deadLetterRepository,
+                         @Value("${print.webhook.max-attempts:8}") int maxAttempts,
+                         @Value("${print.webhook.base-backoff-seconds:30}") long baseBackoffSeconds,
+                         @Value("${print.webhook.max-backoff-minutes:60}") long maxBackoffMinutes,
+                         @Value("${print.webhook.lease-minutes:10}") long leaseMinutes) {
+        this.eventRepository = eventRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofSeconds(baseBackoffSeconds);
+        this.maxBackoff = Duration.ofMinutes(maxBackoffMinutes);
+        this.lease = Duration.ofMinutes(leaseMinutes);
+    }
+
+    /**
+     * Records a verified event.
+     *
+     * @return false if an event for this payment was already recorded (a Razorpay retry)
+     */
+    public boolean enqueue(String paymentId, String orderId, String eventType, String payload) {
+        if (eventRepository.findByPaymentId(paymentId).isPresent()) {
+            return false;
+        }
+        WebhookEvent event = new WebhookEvent();
+        event.setPaymentId(paymentId);
+        event.setOrderId(orderId);
+        event.setEventType(eventType);
+        event.setPayload(payload);
+        try {
+            eventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent delivery of the same payment won the unique index
+            return false;
+        }
+        log.info("Queued webhook event {} for payment {} (order {})", event.getId(), paymentId, orderId);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findDue(int limit) {
+        return eventRepository.findDueIds(WebhookEvent.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Leases a due event for one attempt. If the attempt never reports back (the process died), the
+     * event becomes due again when the lease runs out.
+     */
+    @Transactional
+    public Optional<WebhookEvent> claim(Long eventId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (eventRepository.claim(eventId, now, now.plus(lease)) == 0) {
+            return Optional.empty();
+        }
+        return eventRepository.findById(eventId);
+    }
+
+    @Transactional
+    public void markDone(Long eventId) {
+        eventRepository.findById(eventId).ifPresent(event -> {
+            event.setStatus(WebhookEvent.Status.DONE);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setLastError(null);
+        });
+    }
+
+    /**
+     * Schedules the next attempt, or dead-letters the event if it is out of attempts or the failure
+     * is permanent.
+     */
+    @Transactional
+    public void recordFailure(Long eventId, String error, boolean permanent) {
+        eventRepository.findById(eventId).ifPresent(event -> {
+            String message = error == null ? "unknown error" : error.length() > 1000 ? error.substring(0, 1000) : error;
+            event.setLastError(message);
+            if (permanent || event.getAttempts() >= maxAttempts) {
+                event.setStatus(WebhookEvent.Status.DEAD);
+                event.setProcessedAt(LocalDateTime.now());
+                WebhookDeadLetter deadLetter = new WebhookDeadLetter();
+                deadLetter.setEventId(event.getId());
+                deadLetter.setPaymentId(event.getPaymentId());
+                deadLetter.setOrderId(event.getOrderId());
+                deadLetter.setEventType(event.getEventType());
+                deadLetter.setPayload(event.getPayload());
+                deadLetter.setAttempts(event.getAttempts());
+                deadLetter.setLastError(message);
+                deadLetterRepository.save(deadLetter);
+                log.error("Webhook event {} for payment {} dead-lettered after {} attempts: {}",
+                        event.getId(), event.getPaymentId(), event.getAttempts(), message);
+                return;
+            }
+            Duration delay = backoff(event.getAttempts());
+            event.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            log.warn("Webhook event {} for payment {} failed (attempt {}/{}), retrying in {}s: {}",
+                    event.getId(), event.getPaymentId(), event.getAttempts(), maxAttempts, delay.toSeconds(), message);
+        });
+    }
+
+    /**
+     * base * 2^(attempt-1), capped, with up to 20% jitter so a burst of failures does not retry in lockstep.
+     */
+    private Duration backoff(int attempt) {
+        long millis = baseBackoff.toMillis() << Math.min(Math.max(attempt - 1, 0), 20);
+        millis = Math.min(millis, maxBackoff.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+}
@@ -0,0 +1,16 @@
+-- Composite index for the dashboard's payment queries:
+--   WHERE phone_number = ? AND payment_date >= ? AND payment_date < ? ORDER BY payment_date DESC
+-- Hibernate's schema update creates it from PaymentDetail's @Index on startup; this script is for
+-- databases managed by hand. It is idempotent and builds the index online (no table lock on InnoDB).
+SET @index_exists := (
+    SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE()
+      AND table_name = 'payment_details'
+      AND index_name = 'ix_payment_details_phone_date'
+);
+SET @ddl := IF(@index_exists = 0,
+    'ALTER TABLE payment_details ADD INDEX ix_payment_details_phone_date (phone_number, payment_date), ALGORITHM=INPLACE, LOCK=NONE',
+    'SELECT ''ix_payment_details_phone_date already exists''');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,25 @@
+-- Per-shop, per-day payment totals read by the dashboard. Hibernate's schema update creates the
+-- tables from PaymentDailyRollup and DataMigration, and PaymentService backfills the rollup once on
+-- startup; this script does both for databases managed by hand. The backfill recomputes each
+-- shop-day from payment_details, so running the script again is harmless.
+CREATE TABLE IF NOT EXISTS payment_daily_rollup (
+    phone_number  VARCHAR(10)    NOT NULL,
+    rollup_date   DATE           NOT NULL,
+    payment_count BIGINT         NOT NULL,
+    total_amount  DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (phone_number, rollup_date)
+);
+
+CREATE TABLE IF NOT EXISTS data_migrations (
+    name         VARCHAR(100) NOT NULL,
+    completed_at DATETIME(6)  NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO payment_daily_rollup (phone_number, rollup_date, payment_count, total_amount)
+SELECT phone_number, payment_date, COUNT(*), SUM(amount)
+FROM payment_details
+GROUP BY phone_number, payment_date
+ON DUPLICATE KEY UPDATE payment_count = VALUES(payment_count), total_amount = VALUES(total_amount);
+
+INSERT IGNORE INTO data_migrations (name, completed_at) VALUES ('payment_daily_rollup_backfill', NOW(6));
@@ -0,0 +1,239 @@
+package com.pdf.printer.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pdf.printer.service.MappedFileDataSource;
+import com.pdf.printer.service.SmtpTransportPool;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
+import jakarta.mail.Message;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+
+/**
+ * Peak heap and throughput of sending one large print order to a local SMTP sink, per attachment
+ * strategy:
+ * <ul>
+ * <li>{@code mapped}: {@link MappedFileDataSource} with base64 declared up front (what
+ * PrintFulfillmentService does now),</li>
+ * <li>{@code file}: a plain FileDataSource with the encoding left for saveChanges() to detect, as
+ * MimeMessageHelper.addAttachment(File) did (reads each file an extra time),</li>
+ * <li>{@code heap}: the file bytes loaded into a ByteArrayDataSource, i.e. a fully materialized order.</li>
+ * </ul>
+ * The order is split into attachments of at most 100 MB. The sink is in-process and discards DATA
+ * while counting bytes; a sampler thread records the highest heap use seen. Run each mode in its own
+ * JVM with a small heap to see the difference:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -Xmx256m -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *      com.pdf.printer.loadtest.AttachmentStreamingBenchmark mapped 500
+ * </pre>
+ * Arguments: mode ({@code mapped}, {@code file} or {@code heap}), order size in MB (default 500).
+ * Standalone so it never runs during {@code mvn test}.
+ */
+public class AttachmentStreamingBenchmark {
+
+    private static final long MB = 1024 * 1024;
+    private static final long MAX_ATTACHMENT = 100 * MB;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "mapped";
+        long orderBytes = (args.length > 1 ? Long.parseLong(args[1]) : 500) * MB;
+        Path directory = Files.createTempDirectory("attachment-bench");
+        try (Sink sink = new Sink()) {
+            int files = (int) ((orderBytes + MAX_ATTACHMENT - 1) / MAX_ATTACHMENT);
+            Path[] attachments = new Path[files];
+            for (int i = 0; i < files; i++) {
+                attachments[i] = createFile(directory.resolve("order-part-" + i + ".pdf"),
+                        Math.min(MAX_ATTACHMENT, orderBytes - i * MAX_ATTACHMENT));
+            }
+
+            Properties properties = new Properties();
+            properties.put("mail.smtp.host", "127.0.0.1");
+            properties.put("mail.smtp.port", String.valueOf(sink.port()));
+            Session session = Session.getInstance(properties);
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long baseline = memory.getHeapMemoryUsage().getUsed();
+            HeapSampler sampler = new HeapSampler(memory);
+            sampler.start();
+            long started = System.nanoTime();
+            try (SmtpTransportPool pool = new SmtpTransportPool(session, "127.0.0.1", sink.port(), null, null, 1, Duration.ofMinutes(1));
+                 SmtpTransportPool.Connection connection = pool.acquire()) {
+                connection.send(message(session, mode, attachments));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            sampler.interrupt();
+            sampler.join();
+
+            System.out.printf("mode=%s order=%d MB attachments=%d%n", mode, orderBytes / MB, files);
+            System.out.printf("  sent %d MB on the wire in %d ms (%.1f MB/s)%n", sink.bytes() / MB, elapsedMillis,
+                    sink.bytes() / (double) MB / Math.max(1, elapsedMillis) * 1000);
+            System.out.printf("  heap: baseline %d MB, peak %d MB (+%d MB), max heap %d MB%n", baseline / MB,
+                    sampler.peak() / MB, Math.max(0, sampler.peak() - baseline) / MB, memory.getHeapMemoryUsage().getMax() / MB);
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : paths.toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static MimeMessage message(Session session, String mode, Path[] attachments) throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("kiosk@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("printer@example.com"));
+        message.setSubject("Bulk Print Request: benchmark");
+        MimeMultipart multipart = new MimeMultipart();
+        MimeBodyPart body = new MimeBodyPart();
+        body.setText("Print each attachment once.");
+        multipart.addBodyPart(body);
+        for (Path attachment : attachments) {
+            MimeBodyPart part = new MimeBodyPart();
+            part.setDisposition(Part.ATTACHMENT);
+            part.setFileName(attachment.getFileName().toString());
+            switch (mode) {
+                case "mapped" -> {
+                    part.setDataHandler(new DataHandler(new MappedFileDataSource(attachment, "application/pdf")));
+                    part.setHeader("Content-Transfer-Encoding", "base64");
+                }
+                case "file" -> part.setDataHandler(new DataHandler(new FileDataSource(attachment.toFile())));
+                case "heap" -> part.setDataHandler(new DataHandler(new ByteArrayDataSource(Files.readAllBytes(attachment), "application/pdf")));
+                default -> throw new IllegalArgumentException("Unknown mode " + mode + " (mapped, file or heap)");
+            }
+            multipart.addBodyPart(part);
+        }
+        message.setContent(multipart);
+        return message;
+    }
+
+    // Binary content, so no encoding other than base64 fits
+    private static Path createFile(Path path, long size) throws IOException {
+        byte[] chunk = new byte[(int) MB];
+        Random random = new Random(size);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return path;
+    }
+
+    private static final class HeapSampler extends Thread {
+        private final MemoryMXBean memory;
+        private volatile long peak;
+
+        HeapSampler(MemoryMXBean memory) {
+            super("heap-sampler");
+            setDaemon(true);
+            this.memory = memory;
+        }
+
+        long peak() {
+            return peak;
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Single-connection SMTP sink that counts and discards message data.
+     */
+    private static final class Sink implements AutoCloseable {
+        private final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        private final AtomicLong bytes = new AtomicLong();
+
+        Sink() throws IOException {
+            Thread thread = new Thread(this::serve, "smtp-sink");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        long bytes() {
+            return bytes.get();
+        }
+
+        private void serve() {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    BufferedReader commands = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1), 64 * 1024);
+                    reply(out, "220 sink");
+                    String line;
+                    while ((line = commands.readLine()) != null) {
+                        String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line;
+                        if (command.equals("DATA")) {
+                            reply(out, "354 go ahead");
+                            String data;
+                            while ((data = commands.readLine()) != null && !data.equals(".")) {
+                                bytes.addAndGet(data.length() + 2);
+                            }
+                            reply(out, "250 discarded");
+                        } else if (command.equals("QUIT")) {
+                            reply(out, "221 bye");
+                            break;
+                        } else if (command.equals("EHLO")) {
+                            reply(out, "250-sink\r\n250 8BITMIME");
+                        } else {
+                            reply(out, "250 OK");
+                        }
+                    }
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private static void reply(OutputStream out, String response) throws IOException {
+            out.write((response + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.pdf.printer.loadtest;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after latency of the dashboard's monthly payment query on a seeded table.
+ * <p>
+ * Seeds {@code payment_details_bench} (same columns as {@code payment_details}) with the requested
+ * number of rows spread over three years and a pool of shop phones, then times:
+ * <ol>
+ * <li>the old {@code MONTH()/YEAR()} query without the composite index,</li>
+ * <li>the old query with the index (the functions still hide the column from it),</li>
+ * <li>the half-open range query with the index.</li>
+ * </ol>
+ * Each query runs once per iteration for a random phone, rows plus the SUM, like {@code /fetchDetails}.
+ * With a base URL it also times {@code POST /fetchDetails} (MONTH filter) against a running app, to
+ * compare a build before and after the change on the same database:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:$(cat cp.txt) com.pdf.printer.loadtest.DashboardQueryBenchmark \
+ *      jdbc:mysql://localhost:3306/printer user secret 3000000 200 [http://localhost:8080]
+ * </pre>
+ * Arguments: JDBC URL, user, password, rows, iterations, optional base URL. Seeding is skipped
+ * when the table already has the requested rows. Standalone so it never runs during {@code mvn test}.
+ */
+public class DashboardQueryBenchmark {
+
+    private static final String TABLE = "payment_details_bench";
+    private static final String INDEX = "ix_bench_phone_date";
+    private static final int PHONES = 500;
+
+    private static final String OLD_ROWS = "SELECT * FROM " + TABLE + " WHERE MONTH(payment_date) = MONTH(CURRENT_DATE)"
+            + " AND YEAR(payment_date) = YEAR(CURRENT_DATE) AND phone_number = ? ORDER BY payment_date DESC";
+    private static final String OLD_TOTAL = "SELECT COALESCE(SUM(amount), 0) FROM " + TABLE + " WHERE MONTH(payment_date) = MONTH(CURRENT_DATE)"
+            + " AND YEAR(payment_date) = YEAR(CURRENT_DATE) AND phone_number = ?";
+    private static final String NEW_ROWS = "SELECT * FROM " + TABLE + " WHERE phone_number = ? AND payment_date >= ?"
+            + " AND payment_date < ? ORDER BY payment_date DESC";
+    private static final String NEW_TOTAL = "SELECT COALESCE(SUM(amount), 0) FROM " + TABLE + " WHERE phone_number = ?"
+            + " AND payment_date >= ? AND payment_date < ?";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: DashboardQueryBenchmark <jdbcUrl> <user> <password> [rows=3000000] [iterations=200] [baseUrl]");
+            System.exit(1);
+        }
+        long rows = args.length > 3 ? Long.parseLong(args[3]) : 3_000_000L;
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        String url = args[0] + (args[0].contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        try (Connection connection = DriverManager.getConnection(url, args[1], args[2])) {
+            seed(connection, rows);
+            Random random = new Random(7);
+
+            dropIndex(connection);
+            report("MONTH()/YEAR(), no index", measure(connection, iterations, random, false));
+            explain(connection, false);
+
+            System.out.println("Creating index " + INDEX + " ...");
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX " + INDEX + " ON " + TABLE + " (phone_number, payment_date)");
+                statement.execute("ANALYZE TABLE " + TABLE);
+            }
+            report("MONTH()/YEAR(), with index", measure(connection, iterations, random, false));
+            report("half-open range, with index", measure(connection, iterations, random, true));
+            explain(connection, true);
+        }
+        if (args.length > 5) {
+            report("POST /fetchDetails (MONTH)", measureEndpoint(args[5], iterations, new Random(7)));
+        }
+    }
+
+    private static void seed(Connection connection, long rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, payment_date DATE NOT NULL, payment_time TIME NOT NULL,"
+                    + "payment_id VARCHAR(255) NOT NULL UNIQUE, phone_number VARCHAR(10) NOT NULL,"
+                    + "amount DECIMAL(10,2) NOT NULL, created_at DATETIME(6), updated_at DATETIME(6))");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+                count.next();
+                if (count.getLong(1) >= rows) {
+                    System.out.printf("%s already has %d rows%n", TABLE, count.getLong(1));
+                    return;
+                }
+                if (count.getLong(1) > 0) {
+                    statement.execute("TRUNCATE TABLE " + TABLE);
+                }
+            }
+        }
+        dropIndex(connection);
+        System.out.printf("Seeding %d rows into %s ...%n", rows, TABLE);
+        long started = System.nanoTime();
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE
+                + " (payment_date, payment_time, payment_id, phone_number, amount, created_at, updated_at)"
+                + " VALUES (?, ?, ?, ?, ?, NOW(), NOW())")) {
+            for (long i = 0; i < rows; i++) {
+                insert.setObject(1, today.minusDays(random.nextInt(3 * 365)));
+                insert.setString(2, String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+                insert.setString(3, "pay_bench_" + i);
+                insert.setString(4, phone(random.nextInt(PHONES)));
+                insert.setBigDecimal(5, BigDecimal.valueOf(5 + random.nextInt(500)));
+                insert.addBatch();
+                if (i % 5000 == 4999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.printf("Seeded in %d s%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private static long[] measure(Connection connection, int iterations, Random random, boolean halfOpen) throws SQLException {
+        LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+        long[] micros = new long[iterations];
+        try (PreparedStatement rows = connection.prepareStatement(halfOpen ? NEW_ROWS : OLD_ROWS);
+             PreparedStatement total = connection.prepareStatement(halfOpen ? NEW_TOTAL : OLD_TOTAL)) {
+            for (int i = 0; i < iterations; i++) {
+                String phone = phone(random.nextInt(PHONES));
+                long started = System.nanoTime();
+                for (PreparedStatement statement : new PreparedStatement[] {rows, total}) {
+                    statement.setString(1, phone);
+                    if (halfOpen) {
+                        statement.setObject(2, firstOfMonth);
+                        statement.setObject(3, firstOfMonth.plusMonths(1));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            resultSet.getObject(1);
+                        }
+                    }
+                }
+                micros[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            }
+        }
+        return micros;
+    }
+
+    private static long[] measureEndpoint(String baseUrl, int iterations, Random random) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long[] micros = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            String form = "phoneNumber=" + URLEncoder.encode(phone(random.nextInt(PHONES)), StandardCharsets.UTF_8) + "&filterType=MONTH";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl.replaceAll("/$", "") + "/fetchDetails"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+            long started = System.nanoTime();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            micros[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        }
+        return micros;
+    }
+
+    private static void explain(Connection connection, boolean halfOpen) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + (halfOpen ? NEW_ROWS : OLD_ROWS))) {
+            statement.setString(1, phone(0));
+            if (halfOpen) {
+                LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+                statement.setObject(2, firstOfMonth);
+                statement.setObject(3, firstOfMonth.plusMonths(1));
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                while (plan.next()) {
+                    System.out.printf("  plan: type=%s key=%s rows=%s extra=%s%n", plan.getString("type"),
+                            plan.getString("key"), plan.getString("rows"), plan.getString("Extra"));
+                }
+            }
+        }
+    }
+
+    private static void dropIndex(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP INDEX " + INDEX + " ON " + TABLE);
+        } catch (SQLException e) {
+            // Not there yet
+        }
+    }
+
+    private static void report(String label, long[] micros) {
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-30s p50 %8.2f ms   p95 %8.2f ms   p99 %8.2f ms%n", label,
+                percentile(sorted, 50) / 1000.0, percentile(sorted, 95) / 1000.0, percentile(sorted, 99) / 1000.0);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String phone(int n) {
+        return String.format("9%09d", n);
+    }
+}
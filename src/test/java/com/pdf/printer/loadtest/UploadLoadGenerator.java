@@ -0,0 +1,199 @@
+package com.pdf.printer.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load generator for comparing the platform-thread and virtual-thread execution modes.
+ * <p>
+ * For each concurrency level it runs that many clients in a closed loop, each uploading the sample
+ * file to {@code /print/upload} and polling the job until it is processed, and reports the upload
+ * acknowledgement and end-to-end latency percentiles, throughput and busy (429) / error counts. The
+ * highest level whose error rate stays under 1% and whose end-to-end p99 stays under the SLA is
+ * reported as the maximum sustainable concurrency. Start the app twice against the same database and
+ * compare the two reports:
+ * <pre>
+ * mvn -Pjava21 spring-boot:run                                                # platform threads
+ * mvn -Pjava21 spring-boot:run -Dspring-boot.run.profiles=vthreads             # virtual threads
+ * mvn test-compile
+ * java -cp target/test-classes com.pdf.printer.loadtest.UploadLoadGenerator \
+ *      http://localhost:8080 sample.pdf 10,25,50,100,200 60 5000
+ * </pre>
+ * Arguments: base URL, file to upload, concurrency levels, seconds per level, p99 SLA in ms.
+ * This is a standalone program rather than a test so that it never runs during {@code mvn test}.
+ */
+public class UploadLoadGenerator {
+
+    private static final Pattern STATUS = Pattern.compile("\"status\"\\s*:\\s*\"([a-z]+)\"");
+    private static final Pattern STATUS_URL = Pattern.compile("\"statusUrl\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String baseUrl;
+    private final Path sample;
+    private final byte[] sampleBytes;
+
+    UploadLoadGenerator(String baseUrl, Path sample) throws IOException {
+        this.baseUrl = baseUrl.replaceAll("/$", "");
+        this.sample = sample;
+        this.sampleBytes = Files.readAllBytes(sample);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: UploadLoadGenerator <baseUrl> <file> [levels=10,25,50,100] [secondsPerLevel=60] [p99SlaMs=5000]");
+            System.exit(1);
+        }
+        UploadLoadGenerator generator = new UploadLoadGenerator(args[0], Paths.get(args[1]));
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "10,25,50,100").split(",")).mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        long slaMs = args.length > 4 ? Long.parseLong(args[4]) : 5000;
+
+        System.out.printf("%-12s %8s %8s %8s %10s %10s %10s %10s %10s%n",
+                "concurrency", "done", "busy", "errors", "req/s", "ack p50", "ack p99", "e2e p50", "e2e p99");
+        int maxSustainable = 0;
+        for (int level : levels) {
+            LevelResult result = generator.runLevel(level, Duration.ofSeconds(seconds));
+            System.out.printf("%-12d %8d %8d %8d %10.1f %8dms %8dms %8dms %8dms%n", level, result.completed, result.busy,
+                    result.errors, result.completed / (double) seconds, result.percentile(result.ackMillis, 50),
+                    result.percentile(result.ackMillis, 99), result.percentile(result.endToEndMillis, 50),
+                    result.percentile(result.endToEndMillis, 99));
+            if (result.errorRate() < 0.01 && result.percentile(result.endToEndMillis, 99) <= slaMs) {
+                maxSustainable = level;
+            }
+        }
+        System.out.printf("Max concurrency with <1%% errors and e2e p99 <= %d ms: %d%n", slaMs, maxSustainable);
+    }
+
+    LevelResult runLevel(int concurrency, Duration duration) throws InterruptedException {
+        LevelResult result = new LevelResult();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    uploadOnce(result);
+                }
+            }));
+        }
+        clients.shutdown();
+        clients.awaitTermination(duration.toMillis() + TimeUnit.MINUTES.toMillis(5), TimeUnit.MILLISECONDS);
+        futures.forEach(f -> f.cancel(true));
+        return result;
+    }
+
+    private void uploadOnce(LevelResult result) {
+        long start = System.nanoTime();
+        try {
+            String boundary = "----load" + UUID.randomUUID();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/print/upload"))
+                    .timeout(Duration.ofMinutes(2))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(boundary)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long ackMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (response.statusCode() == 429) {
+                result.recordBusy();
+                Thread.sleep(1000);
+                return;
+            }
+            if (response.statusCode() >= 300) {
+                result.recordError();
+                return;
+            }
+            String body = response.body();
+            Matcher statusUrl = STATUS_URL.matcher(body);
+            while (statusUrl.find() && isPending(body)) {
+                Thread.sleep(250);
+                body = client.send(HttpRequest.newBuilder(URI.create(baseUrl + statusUrl.group(1))).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()).body();
+                statusUrl = STATUS_URL.matcher(body);
+            }
+            Matcher status = STATUS.matcher(body);
+            if (status.find() && "processed".equals(status.group(1))) {
+                result.recordCompleted(ackMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else {
+                result.recordError();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            result.recordError();
+        }
+    }
+
+    private static boolean isPending(String body) {
+        Matcher status = STATUS.matcher(body);
+        return status.find() && ("queued".equals(status.group(1)) || "processing".equals(status.group(1)));
+    }
+
+    private byte[] multipartBody(String boundary) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sampleBytes.length + 512);
+        String fileName = sample.getFileName().toString();
+        String contentType = fileName.toLowerCase().endsWith(".pdf") ? "application/pdf" : "application/octet-stream";
+        out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"uniqueId\"\r\n\r\nload-"
+                + UUID.randomUUID() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + fileName
+                + "\"\r\nContent-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(sampleBytes);
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    static class LevelResult {
+        final List<Long> ackMillis = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> endToEndMillis = Collections.synchronizedList(new ArrayList<>());
+        int completed;
+        int busy;
+        int errors;
+
+        synchronized void recordCompleted(long ack, long endToEnd) {
+            completed++;
+            ackMillis.add(ack);
+            endToEndMillis.add(endToEnd);
+        }
+
+        synchronized void recordBusy() { busy++; }
+
+        synchronized void recordError() { errors++; }
+
+        synchronized double errorRate() {
+            int total = completed + busy + errors;
+            return total == 0 ? 1 : (busy + errors) / (double) total;
+        }
+
+        long percentile(List<Long> values, int percentile) {
+            List<Long> sorted;
+            synchronized (values) {
+                sorted = new ArrayList<>(values);
+            }
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+    }
+}
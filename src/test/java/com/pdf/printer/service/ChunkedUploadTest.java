@@ -0,0 +1,60 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link ChunkedUpload}'s incremental hash always matches the bytes the file ends up with.
+ */
+class ChunkedUploadTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hashedBytesCannotBeRewritten() throws Exception {
+        ChunkedUpload upload = upload(8);
+        write(upload, 0, "genuine!");
+
+        assertThrows(IllegalStateException.class, () -> upload.beginWrite(0));
+        assertThrows(IllegalStateException.class, () -> upload.beginWrite(7));
+        assertEquals(sha256("genuine!"), upload.close());
+    }
+
+    @Test
+    void digestWaitsForWritesInFlight() throws Exception {
+        ChunkedUpload upload = upload(8);
+        write(upload, 4, "XXXX");
+        // A slow rewrite of the second half starts before the first half arrives
+        upload.beginWrite(4);
+        write(upload, 0, "good");
+        upload.getChannel().write(ByteBuffer.wrap("evil".getBytes()), 4);
+        upload.endWrite(4, 4);
+
+        assertEquals(sha256("goodevil"), upload.close());
+    }
+
+    private ChunkedUpload upload(long size) throws Exception {
+        Path part = Files.createFile(directory.resolve("upload.part"));
+        return new ChunkedUpload("test", "file.bin", "application/octet-stream", size, part, false);
+    }
+
+    private static void write(ChunkedUpload upload, long offset, String content) throws Exception {
+        upload.beginWrite(offset);
+        upload.getChannel().write(ByteBuffer.wrap(content.getBytes()), offset);
+        upload.endWrite(offset, content.length());
+    }
+
+    private static String sha256(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes()));
+    }
+}
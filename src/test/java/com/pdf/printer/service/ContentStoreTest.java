@@ -0,0 +1,72 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link ContentStore} keeps a shared blob until nothing, in memory or in stored state, names it.
+ */
+class ContentStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void sharedBlobIsKeptUntilLastReference() throws Exception {
+        ContentStore store = new ContentStore(uploadDir.toString());
+        String name = store.storeOriginal(content("report"), ".pdf").getFileName();
+        assertTrue(store.storeOriginal(content("report"), ".pdf").isDeduplicated());
+
+        store.release(name);
+        assertTrue(Files.exists(uploadDir.resolve(name)));
+        store.release(name);
+        assertFalse(Files.exists(uploadDir.resolve(name)));
+    }
+
+    @Test
+    void blobNamedByStoredJobsSurvivesARestart() throws Exception {
+        String name = new ContentStore(uploadDir.toString()).storeOriginal(content("report"), ".pdf").getFileName();
+        // Two print jobs used the blob when the application stopped
+        Map<String, Long> pendingJobs = new HashMap<>(Map.of(name, 2L));
+
+        ContentStore restarted = new ContentStore(uploadDir.toString());
+        restarted.addReferenceSource(fileName -> pendingJobs.getOrDefault(fileName, 0L));
+
+        // The first job is delivered; the second still needs the file
+        pendingJobs.put(name, 1L);
+        restarted.release(name);
+        assertTrue(Files.exists(uploadDir.resolve(name)));
+
+        pendingJobs.put(name, 0L);
+        restarted.release(name);
+        assertFalse(Files.exists(uploadDir.resolve(name)));
+    }
+
+    @Test
+    void blobIsKeptWhenReferencesCannotBeChecked() throws Exception {
+        ContentStore store = new ContentStore(uploadDir.toString());
+        String name = store.storeOriginal(content("report"), ".pdf").getFileName();
+        store.addReferenceSource(fileName -> {
+            throw new IllegalStateException("database down");
+        });
+
+        store.release(name);
+        assertTrue(Files.exists(uploadDir.resolve(name)));
+        assertEquals(1, Files.list(uploadDir).count());
+    }
+
+    private static ByteArrayInputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package com.pdf.printer.service;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the in-process PDFBox grayscale engine with the Ghostscript fork on a corpus of PDFs.
+ * <p>
+ * Uses the PDFs in the directory given by {@code -Dbench.corpus=...} or, if absent, a generated
+ * corpus of 1/10/50 page documents with colored text, vector fills and an RGB image per page.
+ * Output sizes per engine are printed at the end of each trial. Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) com.pdf.printer.service.GrayscaleConversionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class GrayscaleConversionBenchmark {
+
+    @Param({"pdfbox", "ghostscript"})
+    public String engine;
+
+    private final GrayscalePdfConverter converter = new GrayscalePdfConverter();
+    private final List<Path> corpus = new ArrayList<>();
+    private Path workDir;
+    private long outputBytes;
+    private long inputBytes;
+    private int conversions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("gray-bench");
+        String corpusDir = System.getProperty("bench.corpus");
+        if (corpusDir != null) {
+            try (Stream<Path> files = Files.list(Paths.get(corpusDir))) {
+                files.filter(p -> p.toString().toLowerCase().endsWith(".pdf")).sorted().forEach(corpus::add);
+            }
+        } else {
+            for (int pages : new int[] {1, 10, 50}) {
+                corpus.add(generateSample(workDir.resolve("sample_" + pages + ".pdf"), pages));
+            }
+        }
+        for (Path pdf : corpus) {
+            inputBytes += Files.size(pdf);
+        }
+    }
+
+    @Benchmark
+    public void convertCorpus() throws Exception {
+        for (Path pdf : corpus) {
+            Path out = workDir.resolve("out_" + engine + "_" + pdf.getFileName());
+            if ("pdfbox".equals(engine)) {
+                try {
+                    converter.convert(pdf.toFile(), out.toFile());
+                } catch (GrayscalePdfConverter.UnsupportedContentException e) {
+                    // Production falls back to Ghostscript here; count it the same way
+                    runGhostscript(pdf, out);
+                }
+            } else {
+                runGhostscript(pdf, out);
+            }
+            outputBytes += Files.size(out);
+            conversions++;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() throws IOException {
+        int runs = Math.max(1, conversions / Math.max(1, corpus.size()));
+        System.out.printf("%n[%s] corpus: %d files, %d bytes in, avg %d bytes out per pass%n",
+                engine, corpus.size(), inputBytes, outputBytes / runs);
+        try (Stream<Path> files = Files.walk(workDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static void runGhostscript(Path in, Path out) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(FileStorageService.ghostscriptGrayCommand(in.toString(), out.toString()))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("gs exited with " + process.exitValue() + " for " + in);
+        }
+    }
+
+    private static Path generateSample(Path target, int pages) throws IOException {
+        BufferedImage photo = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                photo.setRGB(x, y, ((x * 255 / 400) << 16) | ((y * 255 / 300) << 8) | ((x + y) & 0xFF));
+            }
+        }
+        try (PDDocument document = new PDDocument()) {
+            PDImageXObject image = LosslessFactory.createFromImage(document, photo);
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.setNonStrokingColor(0.9f, 0.2f, 0.1f);
+                    content.addRect(50, 700, 200, 80);
+                    content.fill();
+                    content.setNonStrokingColor(0.1f, 0.3f, 0.8f);
+                    content.beginText();
+                    content.setFont(font, 14);
+                    content.newLineAtOffset(50, 650);
+                    content.showText("Sample page " + (i + 1) + " with colored text for B&W conversion");
+                    content.endText();
+                    content.drawImage(image, 50, 300, 400, 300);
+                }
+            }
+            document.save(target.toFile());
+        }
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GrayscaleConversionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,144 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link GrayscalePdfConverter} on small generated pages: color operators and images come out as
+ * DeviceGray, and content it cannot convert raises {@link GrayscalePdfConverter.UnsupportedContentException},
+ * the signal for {@link FileStorageService} to fall back to Ghostscript.
+ */
+class GrayscalePdfConverterTest {
+
+    @TempDir
+    Path directory;
+
+    private final GrayscalePdfConverter converter = new GrayscalePdfConverter();
+
+    @Test
+    void colorOperatorsBecomeGray() throws Exception {
+        File input = page("q 1 0 0 rg 0 0 1 RG 0 0 0 1 k Q /DeviceRGB cs 0 1 0 sc 0 0 10 10 re f");
+        File output = directory.resolve("gray.pdf").toFile();
+
+        converter.convert(input, output);
+
+        List<Object> tokens = tokens(output);
+        for (String color : List.of("rg", "RG", "k", "K")) {
+            assertTrue(operatorIndexes(tokens, color).isEmpty(), color + " left in the page");
+        }
+        assertEquals(0.299f, operand(tokens, "g", 0), 0.001f); // red fill
+        assertEquals(0.114f, operand(tokens, "G", 0), 0.001f); // blue stroke
+        assertEquals(0f, operand(tokens, "g", 1), 0.001f); // black ink
+        assertEquals(COSName.DEVICEGRAY, tokens.get(operatorIndexes(tokens, "cs").get(0) - 1));
+        assertEquals(0.587f, operand(tokens, "sc", 0), 0.001f); // green, in the color space set by cs
+    }
+
+    @Test
+    void colorImagesBecomeGray() throws Exception {
+        File input = directory.resolve("photo.pdf").toFile();
+        BufferedImage orange = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                orange.setRGB(x, y, Color.ORANGE.getRGB());
+            }
+        }
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A6);
+            document.addPage(page);
+            PDImageXObject image = LosslessFactory.createFromImage(document, orange);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(image, 10, 10, 80, 80);
+            }
+            document.save(input);
+        }
+        File output = directory.resolve("gray.pdf").toFile();
+
+        converter.convert(input, output);
+
+        try (PDDocument converted = Loader.loadPDF(output)) {
+            var resources = converted.getPage(0).getResources();
+            COSName name = resources.getXObjectNames().iterator().next();
+            PDImageXObject image = assertInstanceOf(PDImageXObject.class, resources.getXObject(name));
+            assertInstanceOf(PDDeviceGray.class, image.getColorSpace());
+            int expected = (299 * 255 + 587 * 200) / 1000; // Color.ORANGE is (255, 200, 0)
+            assertEquals(expected, image.getImage().getRaster().getSample(3, 3, 0), 1);
+        }
+    }
+
+    @Test
+    void unconvertibleContentIsLeftToGhostscript() throws Exception {
+        File output = directory.resolve("gray.pdf").toFile();
+
+        assertThrows(GrayscalePdfConverter.UnsupportedContentException.class,
+                () -> converter.convert(page("/Sh0 sh"), output));
+        assertThrows(GrayscalePdfConverter.UnsupportedContentException.class,
+                () -> converter.convert(page("BI /W 1 /H 1 /CS /RGB /BPC 8 ID \u00ff\u0000\u0000 EI"), output));
+        assertThrows(GrayscalePdfConverter.UnsupportedContentException.class,
+                () -> converter.convert(page("/Pattern cs /P0 scn 0 0 10 10 re f"), output));
+        assertFalse(output.exists(), "nothing is written when the conversion gives up");
+    }
+
+    /** A one-page PDF whose content stream is exactly {@code content}. */
+    private File page(String content) throws Exception {
+        File file = directory.resolve("page-" + content.hashCode() + ".pdf").toFile();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A6);
+            document.addPage(page);
+            page.setContents(new PDStream(document,
+                    new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1))));
+            document.save(file);
+        }
+        return file;
+    }
+
+    private static List<Object> tokens(File pdf) throws Exception {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return new PDFStreamParser(document.getPage(0)).parse();
+        }
+    }
+
+    private static List<Integer> operatorIndexes(List<Object> tokens, String name) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i) instanceof Operator operator && operator.getName().equals(name)) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    /** The single operand of the {@code occurrence}-th {@code name} operator. */
+    private static float operand(List<Object> tokens, String name, int occurrence) {
+        List<Integer> indexes = operatorIndexes(tokens, name);
+        assertTrue(indexes.size() > occurrence, "expected " + (occurrence + 1) + " " + name + " operators in " + tokens);
+        return ((COSNumber) tokens.get(indexes.get(occurrence) - 1)).floatValue();
+    }
+}
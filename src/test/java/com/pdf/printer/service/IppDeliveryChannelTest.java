@@ -0,0 +1,134 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * {@link IppDeliveryChannel} against {@link IppStandIn}: job attributes instead of repeated data,
+ * a retry after a refused job sending only what is missing, and client errors that are not retried.
+ */
+class IppDeliveryChannelTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private IppStandIn printer;
+    private IppDeliveryChannel channel;
+    private ShopRegistry.ShopInfo shop;
+
+    @BeforeEach
+    void startPrinter() throws Exception {
+        printer = new IppStandIn();
+        channel = new IppDeliveryChannel(uploadDir.toString(), 5, 10, "kiosk");
+        shop = new ShopRegistry.ShopInfo(1, "Test shop", "shop@example.com", "9999999999", 10, 50, 100,
+                2, 2, 2, 10, 10, 10, true, printer.printerUri());
+    }
+
+    @AfterEach
+    void stopPrinter() {
+        printer.close();
+    }
+
+    @Test
+    void copiesAndDuplexGoAsJobAttributes() throws Exception {
+        byte[] document = upload("report.pdf", 20_000);
+
+        PrintDeliveryChannel.Outcome outcome = channel.deliver(shop, List.of(item("report.pdf", 1, 3, true)),
+                "ORDER-1", parts -> Set.of());
+
+        assertNull(outcome.failure());
+        assertEquals(Set.of(1), outcome.delivered());
+        IppStandIn.Request request = printer.requests().get(0);
+        assertEquals(0x0002, request.operation());
+        assertEquals(printer.printerUri(), request.operationAttributes().get("printer-uri"));
+        assertEquals("application/pdf", request.operationAttributes().get("document-format"));
+        assertEquals("3", request.jobAttributes().get("copies"));
+        assertEquals("two-sided-long-edge", request.jobAttributes().get("sides"));
+        assertEquals("color", request.jobAttributes().get("print-color-mode"));
+        // The document is sent once, however many copies
+        assertArrayEquals(document, request.document());
+    }
+
+    @Test
+    void retryAfterARefusedJobSendsOnlyTheRest() throws Exception {
+        upload("a.pdf", 1000);
+        upload("b.jpg", 1000);
+        upload("c.pdf", 1000);
+        List<FileOrderItem> items = List.of(item("a.pdf", 0, 1, false), item("b.jpg", 0, 2, false),
+                item("c.pdf", 1, 1, true));
+        printer.busyOn(2);
+
+        PrintDeliveryChannel.Outcome first = channel.deliver(shop, items, "ORDER-2", parts -> Set.of());
+
+        assertEquals(3, first.parts());
+        assertEquals(Set.of(1, 3), first.delivered());
+        assertInstanceOf(IppClient.IppException.class, first.failure());
+        assertEquals(0x0507, ((IppClient.IppException) first.failure()).statusCode());
+
+        PrintDeliveryChannel.Outcome retry = channel.deliver(shop, items, "ORDER-2", parts -> first.delivered());
+
+        assertNull(retry.failure());
+        assertEquals(Set.of(2), retry.delivered());
+        List<IppStandIn.Request> requests = printer.requests();
+        assertEquals(4, requests.size());
+        assertEquals("ORDER-2 - b.jpg", requests.get(3).operationAttributes().get("job-name"));
+        assertEquals("image/jpeg", requests.get(3).operationAttributes().get("document-format"));
+        assertEquals("monochrome", requests.get(3).jobAttributes().get("print-color-mode"));
+    }
+
+    @Test
+    void clientErrorsAreReportedAsPermanent() throws Exception {
+        upload("a.pdf", 1000);
+        upload("b.pdf", 1000);
+        List<FileOrderItem> items = List.of(item("a.pdf", 0, 1, false), item("b.pdf", 0, 1, false));
+        printer.busyOn(1);
+        // client-error-document-format-not-supported
+        printer.refuseOn(2, 0x040A);
+
+        PrintDeliveryChannel.Outcome outcome = channel.deliver(shop, items, "ORDER-3", parts -> Set.of());
+
+        assertEquals(0x040A, ((IppClient.IppException) outcome.failure()).statusCode());
+        assertTrue(channel.isPermanent(outcome.failure()));
+        assertFalse(channel.isPermanent(new IppClient.IppException(0x0507, "busy")));
+        assertFalse(channel.isPermanent(new IOException("connection refused")));
+    }
+
+    @Test
+    void ippSchemesMapToHttpOnPort631() {
+        assertEquals(URI.create("http://printer.local:631/ipp/print"),
+                IppClient.httpUri(URI.create("ipp://printer.local/ipp/print")));
+        assertEquals(URI.create("https://10.0.0.5:8443/ipp/print"),
+                IppClient.httpUri(URI.create("ipps://10.0.0.5:8443/ipp/print")));
+    }
+
+    private byte[] upload(String name, int size) throws Exception {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        Files.write(uploadDir.resolve(name), content);
+        return content;
+    }
+
+    private static FileOrderItem item(String fileName, int printType, int copies, boolean duplex) {
+        return new FileOrderItem(null, fileName, 1, printType, copies, 0, 1, duplex);
+    }
+}
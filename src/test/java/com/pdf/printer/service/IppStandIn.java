@@ -0,0 +1,133 @@
+package com.pdf.printer.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal in-process IPP printer for tests: accepts Print-Job requests over HTTP on a loopback
+ * port, records each request's attributes and document, and answers with a job id. It can answer
+ * chosen requests (counting from 1) with an error status, to exercise the client's error paths.
+ */
+class IppStandIn implements AutoCloseable {
+
+    /** One received Print-Job. Integer values are recorded as their decimal string. */
+    record Request(int operation, Map<String, String> operationAttributes, Map<String, String> jobAttributes,
+                   byte[] document) { }
+
+    private final HttpServer server;
+    private final List<Request> requests = new ArrayList<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private final Map<Integer, Integer> errors = new ConcurrentHashMap<>();
+
+    IppStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ipp/print", this::handle);
+        server.start();
+    }
+
+    /** The printer URI, with the ipp scheme a real printer advertises. */
+    String printerUri() {
+        return "ipp://127.0.0.1:" + server.getAddress().getPort() + "/ipp/print";
+    }
+
+    List<Request> requests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /** Answers the given request with server-error-busy. */
+    void busyOn(int requestNumber) {
+        refuseOn(requestNumber, 0x0507);
+    }
+
+    void refuseOn(int requestNumber, int statusCode) {
+        errors.put(requestNumber, statusCode);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int number = received.incrementAndGet();
+        int requestId;
+        try (InputStream body = exchange.getRequestBody()) {
+            DataInputStream in = new DataInputStream(body);
+            in.readShort(); // version
+            int operation = in.readUnsignedShort();
+            requestId = in.readInt();
+            Map<String, String> operationAttributes = new LinkedHashMap<>();
+            Map<String, String> jobAttributes = new LinkedHashMap<>();
+            Map<String, String> group = null;
+            while (true) {
+                int tag = in.readUnsignedByte();
+                if (tag == 0x03) {
+                    break;
+                }
+                if (tag < 0x10) {
+                    group = tag == 0x01 ? operationAttributes : jobAttributes;
+                    continue;
+                }
+                String name = new String(in.readNBytes(in.readUnsignedShort()), StandardCharsets.US_ASCII);
+                byte[] value = in.readNBytes(in.readUnsignedShort());
+                group.put(name, tag == 0x21 ? String.valueOf(ByteBuffer.wrap(value).getInt())
+                        : new String(value, StandardCharsets.UTF_8));
+            }
+            Request request = new Request(operation, operationAttributes, jobAttributes, in.readAllBytes());
+            synchronized (requests) {
+                requests.add(request);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(0x0101);
+        Integer error = errors.get(number);
+        out.writeShort(error == null ? 0x0000 : error);
+        out.writeInt(requestId);
+        out.writeByte(0x01);
+        attribute(out, 0x47, "attributes-charset", "utf-8".getBytes(StandardCharsets.US_ASCII));
+        attribute(out, 0x48, "attributes-natural-language", "en".getBytes(StandardCharsets.US_ASCII));
+        if (error != null) {
+            attribute(out, 0x41, "status-message", "refused".getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.writeByte(0x02);
+            attribute(out, 0x21, "job-id", ByteBuffer.allocate(4).putInt(100 + number).array());
+        }
+        out.writeByte(0x03);
+        byte[] response = bytes.toByteArray();
+
+        exchange.getResponseHeaders().set("Content-Type", "application/ipp");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(response);
+        }
+    }
+
+    private static void attribute(DataOutputStream out, int tag, String name, byte[] value) throws IOException {
+        out.writeByte(tag);
+        out.writeShort(name.length());
+        out.writeBytes(name);
+        out.writeShort(value.length);
+        out.write(value);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
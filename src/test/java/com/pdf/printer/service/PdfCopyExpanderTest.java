@@ -0,0 +1,112 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link PdfCopyExpander} writes every page once per copy, in order, and the copies share the
+ * source's content streams and images rather than repeating them.
+ */
+class PdfCopyExpanderTest {
+
+    @TempDir
+    Path directory;
+
+    private final PdfCopyExpander expander = new PdfCopyExpander();
+
+    @Test
+    void writesCollatedCopiesOfEveryPage() throws Exception {
+        Path source = directory.resolve("two-pages.pdf");
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.addPage(new PDPage(PDRectangle.A5));
+            document.save(source.toFile());
+        }
+        Path output = directory.resolve("copies.pdf");
+
+        assertEquals(6, expander.expand(source, output, 3));
+
+        try (PDDocument copies = Loader.loadPDF(output.toFile())) {
+            assertEquals(6, copies.getNumberOfPages());
+            for (int i = 0; i < 6; i++) {
+                PDRectangle expected = i % 2 == 0 ? PDRectangle.A4 : PDRectangle.A5;
+                assertEquals(expected.getWidth(), copies.getPage(i).getMediaBox().getWidth(), 0.01f, "page " + (i + 1));
+            }
+        }
+    }
+
+    @Test
+    void copiesShareContentAndImagesAndKeepInheritedAttributes() throws Exception {
+        Path source = directory.resolve("photo.pdf");
+        writeImagePage(source);
+        Path output = directory.resolve("copies.pdf");
+
+        assertEquals(10, expander.expand(source, output, 10));
+
+        // Ten copies of a page that is almost all image cost little more than one
+        assertTrue(Files.size(output) < Files.size(source) + 20_000,
+                "source " + Files.size(source) + " bytes, ten copies " + Files.size(output) + " bytes");
+        try (PDDocument copies = Loader.loadPDF(output.toFile())) {
+            PDPage first = copies.getPage(0);
+            PDPage last = copies.getPage(9);
+            // Resources and MediaBox were inherited from the page tree; each copy carries them itself
+            assertTrue(last.getCOSObject().containsKey(COSName.RESOURCES));
+            assertTrue(last.getCOSObject().containsKey(COSName.MEDIA_BOX));
+            assertSame(first.getCOSObject().getCOSStream(COSName.CONTENTS), last.getCOSObject().getCOSStream(COSName.CONTENTS));
+            COSName imageName = first.getResources().getXObjectNames().iterator().next();
+            assertSame(first.getResources().getXObject(imageName).getCOSObject(),
+                    last.getResources().getXObject(imageName).getCOSObject());
+        }
+    }
+
+    @Test
+    void rejectsFewerThanOneCopy() {
+        assertThrows(IllegalArgumentException.class,
+                () -> expander.expand(directory.resolve("any.pdf"), directory.resolve("out.pdf"), 0));
+    }
+
+    /**
+     * One page showing a noise image (which does not compress, so it dominates the file size), with
+     * its resources and media box set on the page tree root instead of the page.
+     */
+    private static void writeImagePage(Path target) throws Exception {
+        BufferedImage noise = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < noise.getHeight(); y++) {
+            for (int x = 0; x < noise.getWidth(); x++) {
+                noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            PDImageXObject image = LosslessFactory.createFromImage(document, noise);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(image, 50, 300, 300, 300);
+            }
+            document.getPages().getCOSObject().setItem(COSName.RESOURCES, page.getCOSObject().getItem(COSName.RESOURCES));
+            document.getPages().getCOSObject().setItem(COSName.MEDIA_BOX, page.getCOSObject().getItem(COSName.MEDIA_BOX));
+            page.getCOSObject().removeItem(COSName.RESOURCES);
+            page.getCOSObject().removeItem(COSName.MEDIA_BOX);
+            document.save(target.toFile());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link PdfPageCountProbe} on small hand-written PDFs, one per file layout it has to handle or
+ * give up on, and {@link FileStorageService#countPdfPages}' PDFBox fallback for the latter.
+ */
+class PdfPageCountProbeTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void classicXrefTable() throws Exception {
+        Path pdf = write("classic.pdf", threePages().finish());
+
+        assertEquals(OptionalInt.of(3), PdfPageCountProbe.probe(pdf));
+    }
+
+    @Test
+    void xrefStreamFallsBackToPdfBox() throws Exception {
+        Path pdf = directory.resolve("xref-stream.pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 4; i++) {
+                document.addPage(new PDPage(PDRectangle.A4));
+            }
+            // Compression writes object streams and an xref stream
+            document.save(pdf.toFile(), CompressParameters.DEFAULT_COMPRESSION);
+        }
+
+        assertEquals(OptionalInt.empty(), PdfPageCountProbe.probe(pdf));
+        assertEquals(4, FileStorageService.countPdfPages(pdf));
+    }
+
+    @Test
+    void incrementalUpdateCountsTheNewestPageTree() throws Exception {
+        Fixture fixture = threePages();
+        fixture.finish();
+        // Appends a fourth page and a new version of the page tree, in a section pointing back with /Prev
+        fixture.object(6, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] >>");
+        fixture.object(2, "<< /Type /Pages /Kids [3 0 R 4 0 R 5 0 R 6 0 R] /Count 4 >>");
+        Path pdf = write("incremental.pdf", fixture.finish());
+
+        assertEquals(OptionalInt.of(4), PdfPageCountProbe.probe(pdf));
+        assertEquals(4, FileStorageService.countPdfPages(pdf));
+    }
+
+    @Test
+    void linearizationDictionaryIsTrustedOnlyWhileItsLengthMatches() throws Exception {
+        Fixture fixture = new Fixture();
+        fixture.object(7, "<< /Linearized 1 /L %010d /N 3 /H [0 0] /O 3 /E 0 /T 0 >>");
+        addThreePages(fixture);
+        byte[] linearized = fixture.finish();
+        byte[] head = Arrays.copyOf(linearized, Math.min(linearized.length, PdfPageCountProbe.LINEARIZATION_HEAD_BYTES));
+
+        assertEquals(OptionalInt.of(3), PdfPageCountProbe.probeLinearized(head, head.length, linearized.length));
+
+        // An incremental update makes the file longer than /L, so /N may no longer be right
+        fixture.object(6, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] >>");
+        fixture.object(2, "<< /Type /Pages /Kids [3 0 R 4 0 R 5 0 R 6 0 R] /Count 4 >>");
+        byte[] updated = fixture.finish();
+        Path pdf = write("updated.pdf", updated);
+
+        assertEquals(OptionalInt.empty(), PdfPageCountProbe.probeLinearized(head, head.length, updated.length));
+        assertEquals(OptionalInt.of(4), PdfPageCountProbe.probe(pdf));
+    }
+
+    @Test
+    void truncatedFileFallsBackToPdfBox() throws Exception {
+        byte[] complete = threePages().finish();
+        String text = new String(complete, StandardCharsets.ISO_8859_1);
+        // The upload stopped before the xref table and trailer arrived
+        Path pdf = write("truncated.pdf", Arrays.copyOf(complete, text.lastIndexOf("\nxref\n") + 1));
+
+        assertEquals(OptionalInt.empty(), PdfPageCountProbe.probe(pdf));
+        assertEquals(3, FileStorageService.countPdfPages(pdf));
+    }
+
+    @Test
+    void notAPdf() throws Exception {
+        Path file = write("notes.pdf", "just some text".getBytes(StandardCharsets.US_ASCII));
+
+        assertTrue(PdfPageCountProbe.probe(file).isEmpty());
+        assertTrue(PdfPageCountProbe.probeLinearized(new byte[0], 0, 0).isEmpty());
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private static Fixture threePages() {
+        Fixture fixture = new Fixture();
+        addThreePages(fixture);
+        return fixture;
+    }
+
+    private static void addThreePages(Fixture fixture) {
+        fixture.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        fixture.object(2, "<< /Type /Pages /Kids [3 0 R 4 0 R 5 0 R] /Count 3 >>");
+        for (int page = 3; page <= 5; page++) {
+            fixture.object(page, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] >>");
+        }
+    }
+
+    /**
+     * Writes a PDF with classic xref tables. Each {@link #finish} closes a revision: an xref section
+     * for the objects written since the last one, a trailer (with /Prev after the first) and
+     * startxref. A "%010d" in an object is replaced with the file length at the first finish.
+     */
+    private static final class Fixture {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Map<Integer, Integer> revision = new LinkedHashMap<>();
+        private int size = 1;
+        private int previousXref = -1;
+        private int lengthAt = -1;
+
+        Fixture() {
+            append("%PDF-1.4\n");
+        }
+
+        void object(int number, String body) {
+            revision.put(number, out.size());
+            size = Math.max(size, number + 1);
+            if (body.contains("%010d")) {
+                lengthAt = out.size() + (number + " 0 obj\n").length() + body.indexOf("%010d");
+                body = body.replace("%010d", "0000000000");
+            }
+            append(number + " 0 obj\n" + body + "\nendobj\n");
+        }
+
+        byte[] finish() {
+            int xref = out.size();
+            StringBuilder table = new StringBuilder("xref\n");
+            if (previousXref < 0) {
+                table.append("0 1\n0000000000 65535 f \n");
+            }
+            revision.forEach((number, offset) -> table.append(number).append(" 1\n")
+                    .append(String.format("%010d 00000 n \n", offset)));
+            table.append("trailer\n<< /Size ").append(size).append(" /Root 1 0 R");
+            if (previousXref >= 0) {
+                table.append(" /Prev ").append(previousXref);
+            }
+            table.append(" >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            append(table.toString());
+            revision.clear();
+            previousXref = xref;
+
+            byte[] bytes = out.toByteArray();
+            if (lengthAt >= 0) {
+                // Like a real linearized file, later revisions leave /L as it was
+                byte[] length = String.format("%010d", bytes.length).getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(length, 0, bytes, lengthAt, length.length);
+                out.reset();
+                out.writeBytes(bytes);
+                lengthAt = -1;
+            }
+            return bytes;
+        }
+
+        private void append(String text) {
+            out.writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link PdfRangeExtractor} on a generated 20-page document whose pages each carry their own
+ * image: the selected pages come out in order with their inherited attributes, and the output
+ * holds only what those pages use.
+ */
+class PdfRangeExtractorTest {
+
+    private static final int PAGES = 20;
+
+    @TempDir
+    Path directory;
+
+    private final PdfRangeExtractor extractor = new PdfRangeExtractor();
+    private Path book;
+
+    @BeforeEach
+    void writeBook() throws Exception {
+        book = directory.resolve("book.pdf");
+        Random random = new Random(42);
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++) {
+                // Page i + 1 is 200 + i points wide, so the output's page order can be checked
+                PDPage page = new PDPage(new PDRectangle(200 + i, 300));
+                document.addPage(page);
+                PDImageXObject image = LosslessFactory.createFromImage(document, noise(random));
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(image, 10, 10, 100, 100);
+                }
+            }
+            // Set once on the page tree, inherited by every page
+            document.getPages().getCOSObject().setInt(COSName.ROTATE, 90);
+            // Page 5 links back to page 1 and on to page 6
+            document.getPage(4).setAnnotations(List.of(link(document.getPage(0)), link(document.getPage(5))));
+            document.save(book.toFile(), CompressParameters.NO_COMPRESSION);
+        }
+    }
+
+    @Test
+    void extractsTheSelectedPagesInOrder() throws Exception {
+        Path output = directory.resolve("range.pdf");
+
+        assertEquals(3, extractor.extract(book, output, 5, 7));
+
+        try (PDDocument range = Loader.loadPDF(output.toFile())) {
+            assertEquals(3, range.getNumberOfPages());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(204 + i, range.getPage(i).getMediaBox().getWidth(), 0.01f);
+            }
+        }
+    }
+
+    @Test
+    void inheritedAttributesMoveOntoThePages() throws Exception {
+        Path output = directory.resolve("range.pdf");
+
+        extractor.extract(book, output, 5, 6);
+
+        try (PDDocument range = Loader.loadPDF(output.toFile())) {
+            for (PDPage page : range.getPages()) {
+                assertEquals(90, page.getCOSObject().getInt(COSName.ROTATE));
+            }
+        }
+    }
+
+    @Test
+    void smallRangeOfALargeDocumentIsSmall() throws Exception {
+        Path output = directory.resolve("range.pdf");
+
+        extractor.extract(book, output, 5, 6);
+
+        // Two pages of twenty, each page's weight being its own image
+        assertTrue(Files.size(output) < Files.size(book) / 5,
+                "book " + Files.size(book) + " bytes, two pages " + Files.size(output) + " bytes");
+        try (PDDocument range = Loader.loadPDF(output.toFile())) {
+            // The link to page 1 would have pulled the whole book back in
+            List<PDAnnotation> annotations = range.getPage(0).getAnnotations();
+            assertEquals(1, annotations.size());
+        }
+    }
+
+    @Test
+    void rejectsARangeOutsideTheDocument() {
+        Path output = directory.resolve("range.pdf");
+
+        assertThrows(IllegalArgumentException.class, () -> extractor.extract(book, output, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> extractor.extract(book, output, 19, PAGES + 1));
+        assertThrows(IllegalArgumentException.class, () -> extractor.extract(book, output, 6, 5));
+    }
+
+    private static PDAnnotationLink link(PDPage target) {
+        PDPageFitDestination destination = new PDPageFitDestination();
+        destination.setPage(target);
+        PDAnnotationLink link = new PDAnnotationLink();
+        link.setRectangle(new PDRectangle(10, 150, 50, 20));
+        link.setDestination(destination);
+        return link;
+    }
+
+    // Noise does not compress, so every page weighs about the same
+    private static BufferedImage noise(Random random) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,91 @@
+package com.pdf.printer.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.pdf.printer.controller.Printer;
+
+/**
+ * Quote throughput of {@link PricingEngine} against the previous per-call lookup, which scanned
+ * {@link Printer#values()} with a String id and allocated a {@code PrinterDetails} for each print type.
+ * Page counts cycle through all three tiers. Run with -prof gc to see the allocation difference:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) com.pdf.printer.service.PricingEngineBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class PricingEngineBenchmark {
+
+    private static final int[] PAGES = {1, 2, 5, 9, 14, 40, 120, 3};
+
+    private final PricingEngine engine = new PricingEngine(
+            Arrays.stream(Printer.values()).map(ShopRegistry.ShopInfo::fromSeed).toList());
+    private int printerId;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int pages() {
+            return PAGES[next++ & (PAGES.length - 1)];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        printerId = Integer.parseInt(Printer.values()[Printer.values().length - 1].getId());
+    }
+
+    @Benchmark
+    public void engine(Cursor cursor, Blackhole blackhole) {
+        blackhole.consume(engine.price(printerId, cursor.pages(), cursor.pages()));
+    }
+
+    @Benchmark
+    public void linearScan(Cursor cursor, Blackhole blackhole) {
+        blackhole.consume(legacyBw(cursor.pages(), printerId) + legacyColor(cursor.pages(), printerId));
+    }
+
+    private static int legacyBw(long totalPages, int printerId) {
+        Printer.PrinterDetails details = Printer.getDetailsById(String.valueOf(printerId));
+        if (totalPages <= 0) return 0;
+        if (totalPages <= details.getRange1()) return (int) (totalPages * details.getB_cost_range1());
+        if (totalPages <= details.getRange2()) return (int) (totalPages * details.getB_cost_range2());
+        return (int) (totalPages * details.getB_cost_range3());
+    }
+
+    private static int legacyColor(long totalPages, int printerId) {
+        Printer.PrinterDetails details = Printer.getDetailsById(String.valueOf(printerId));
+        if (totalPages <= 0) return 0;
+        if (totalPages <= details.getRange1()) return (int) (totalPages * details.getC_cost_range1());
+        if (totalPages <= details.getRange2()) return (int) (totalPages * details.getC_cost_range2());
+        return (int) (totalPages * details.getC_cost_range3());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PricingEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.pdf.printer.controller.Printer;
+import com.pdf.printer.dto.FileOrderItem;
+
+/**
+ * {@link PricingEngine} charges what the inline calculation it replaced charged, on both sides of
+ * every tier boundary, and refuses printers it should not take orders for.
+ */
+class PricingEngineTest {
+
+    // Up to 2 pages at the first rate, up to 9 at the second, above that at the third
+    private static final ShopRegistry.ShopInfo SHOP = shop(7, true);
+
+    @Test
+    void matchesTheOldInlineCalculationForEverySeededPrinter() {
+        PricingEngine engine = new PricingEngine(Arrays.stream(Printer.values()).map(ShopRegistry.ShopInfo::fromSeed).toList());
+
+        for (Printer printer : Printer.values()) {
+            int printerId = Integer.parseInt(printer.getId());
+            for (long pages = 0; pages <= printer.getRange2() + 2; pages++) {
+                assertEquals(legacy(pages, printer.getRange1(), printer.getRange2(), printer.getB_cost_range1(),
+                                printer.getB_cost_range2(), printer.getB_cost_range3()),
+                        engine.price(printerId, pages, 0), printer + " B&W, " + pages + " pages");
+                assertEquals(legacy(pages, printer.getRange1(), printer.getRange2(), printer.getC_cost_range1(),
+                                printer.getC_cost_range2(), printer.getC_cost_range3()),
+                        engine.price(printerId, 0, pages), printer + " color, " + pages + " pages");
+            }
+        }
+    }
+
+    @Test
+    void wholeCountIsChargedAtTheRateOfItsTier() {
+        PricingEngine engine = new PricingEngine(List.of(SHOP));
+
+        assertEquals(0, engine.price(7, 0, 0));
+        assertEquals(2 * 10, engine.price(7, 2, 0));
+        assertEquals(3 * 5, engine.price(7, 3, 0));
+        assertEquals(9 * 5, engine.price(7, 9, 0));
+        assertEquals(10 * 3, engine.price(7, 10, 0));
+        assertEquals(2 * 15, engine.price(7, 0, 2));
+        assertEquals(3 * 9, engine.price(7, 0, 3));
+        assertEquals(10 * 5, engine.price(7, 0, 10));
+
+        PricingEngine.Quote quote = engine.quote(7, 3, 10);
+        assertEquals(5, quote.bwRate());
+        assertEquals(5, quote.colorRate());
+        assertEquals(15 + 50, quote.total());
+    }
+
+    @Test
+    void orderItemsArePricedByPagesTimesCopies() {
+        PricingEngine engine = new PricingEngine(List.of(SHOP));
+        List<FileOrderItem> items = List.of(
+                item(1, PricingEngine.BW, 3),
+                item(2, PricingEngine.COLOR, 1),
+                item(0, PricingEngine.BW, 5)); // nothing to print, so free
+
+        assertEquals(3 * 5 + 2 * 15, engine.price(7, items));
+    }
+
+    @Test
+    void unknownAndInactivePrintersAreRefused() {
+        PricingEngine engine = new PricingEngine(List.of(SHOP, shop(8, false)));
+
+        assertTrue(engine.isKnownPrinter(7));
+        assertFalse(engine.isKnownPrinter(8));
+        assertFalse(engine.isKnownPrinter(9));
+        assertThrows(IllegalArgumentException.class, () -> engine.price(8, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> engine.price(9, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> engine.quote(-5, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> engine.price(7, -1, 0));
+    }
+
+    @Test
+    void idsTooFarApartForAnArrayStillResolve() {
+        PricingEngine engine = new PricingEngine(List.of(SHOP, shop(1_000_000, true)));
+
+        assertEquals(3 * 5, engine.price(1_000_000, 3, 0));
+        assertEquals(3 * 5, engine.price(7, 3, 0));
+        assertFalse(engine.isKnownPrinter(500));
+    }
+
+    /** The calculation PaymentController did inline before the engine existed. */
+    private static int legacy(long totalPages, int range1, int range2, int rate1, int rate2, int rate3) {
+        if (totalPages <= 0) return 0;
+        if (totalPages <= range1) return (int) (totalPages * rate1);
+        if (totalPages <= range2) return (int) (totalPages * rate2);
+        return (int) (totalPages * rate3);
+    }
+
+    private static ShopRegistry.ShopInfo shop(int id, boolean active) {
+        return new ShopRegistry.ShopInfo(id, "Shop " + id, "shop" + id + "@example.com", "90000000" + (id % 100),
+                2, 9, 10, 10, 5, 3, 15, 9, 5, active, null);
+    }
+
+    private static FileOrderItem item(int pageCount, int printType, int copies) {
+        return new FileOrderItem(null, "file.pdf", pageCount, printType, copies, 0, 7, false);
+    }
+}
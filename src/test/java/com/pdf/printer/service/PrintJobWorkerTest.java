@@ -0,0 +1,212 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pdf.printer.dto.FileOrderItem;
+import com.pdf.printer.repo.PrintJobRepository;
+
+/**
+ * The print queue end to end against {@link SmtpStandIn}: {@link PrintJobQueue} (over an
+ * in-memory repository) and {@link PrintJobWorker} with the real email channel. A refused email
+ * is retried with backoff, the job goes DEAD after its last attempt, and the order's files stay
+ * on disk until a delivery succeeds.
+ */
+class PrintJobWorkerTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @TempDir
+    Path uploadDir;
+
+    private SmtpStandIn server;
+    private ContentStore contentStore;
+    private final Map<Long, PrintJob> jobs = new ConcurrentHashMap<>();
+    private PrintJobQueue queue;
+    private EmailDeliveryChannel emailChannel;
+    private PrintJobWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new SmtpStandIn();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(server.port());
+        Properties properties = new Properties();
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        mailSender.setJavaMailProperties(properties);
+
+        contentStore = new ContentStore(uploadDir.toString());
+        ShopRegistry shopRegistry = mock(ShopRegistry.class);
+        ShopRegistry.ShopInfo shop = new ShopRegistry.ShopInfo(1, "Test shop", "printer@example.com", "9999999999",
+                10, 50, 100, 2, 2, 2, 10, 10, 10, true, null);
+        when(shopRegistry.get(1)).thenReturn(Optional.of(shop));
+        when(shopRegistry.getEmailById(1)).thenReturn(shop.email());
+
+        PrintFulfillmentService fulfillmentService = new PrintFulfillmentService(mailSender, contentStore, shopRegistry,
+                new PdfCopyExpander(), new PhotoToPdfService());
+        ReflectionTestUtils.setField(fulfillmentService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fulfillmentService, "mailUsername", "kiosk@example.com");
+        ReflectionTestUtils.setField(fulfillmentService, "deliveryMode", "MANIFEST");
+        ReflectionTestUtils.setField(fulfillmentService, "expandedPdfDomains", new String[0]);
+        ReflectionTestUtils.setField(fulfillmentService, "maxMessageBytes", 20_000_000L);
+
+        queue = new PrintJobQueue(inMemoryRepository(), MAX_ATTEMPTS, 30, 60, 10);
+        emailChannel = new EmailDeliveryChannel(fulfillmentService, mailSender, 2, 60);
+        worker = new PrintJobWorker(queue, fulfillmentService, shopRegistry, List.of(emailChannel), 2, 20);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        worker.shutdown();
+        emailChannel.shutdown();
+        server.close();
+    }
+
+    @Test
+    void refusedEmailIsRetriedWithBackoffAndEndsDeadWithFilesKept() throws Exception {
+        server.rejectRecipients(true);
+        String blob = storeBlob("order file");
+        queue.enqueue("ORDER-1", List.of(item(blob)));
+        PrintJob job = jobs.values().iterator().next();
+
+        poll();
+
+        assertEquals(PrintJob.Status.PENDING, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertTrue(job.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(25)), "backed off by the base delay");
+        assertTrue(Files.exists(uploadDir.resolve(blob)));
+
+        // Not due yet, so the next poll leaves it alone
+        int connections = server.connections();
+        poll();
+        assertEquals(1, job.getAttempts());
+        assertEquals(connections, server.connections());
+
+        for (int attempt = 2; attempt <= MAX_ATTEMPTS; attempt++) {
+            job.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            poll();
+            assertEquals(attempt, job.getAttempts());
+        }
+
+        assertEquals(PrintJob.Status.DEAD, job.getStatus());
+        assertTrue(job.getLastError().contains("SendFailedException"), job.getLastError());
+        assertEquals(0, server.messages().size());
+        assertTrue(Files.exists(uploadDir.resolve(blob)), "a dead job keeps its files for a resend");
+    }
+
+    @Test
+    void filesAreReleasedOnlyOnceTheServerAccepts() throws Exception {
+        server.rejectRecipients(true);
+        String blob = storeBlob("order file");
+        queue.enqueue("ORDER-2", List.of(item(blob)));
+        PrintJob job = jobs.values().iterator().next();
+
+        poll();
+        assertEquals(PrintJob.Status.PENDING, job.getStatus());
+        assertTrue(Files.exists(uploadDir.resolve(blob)));
+
+        server.rejectRecipients(false);
+        job.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        poll();
+
+        assertEquals(PrintJob.Status.SENT, job.getStatus());
+        assertEquals(1, server.messages().size());
+        assertTrue(server.messages().get(0).contains("ORDER-2"));
+        assertFalse(Files.exists(uploadDir.resolve(blob)));
+    }
+
+    @Test
+    void missingFileFailsTheJobInsteadOfSendingTheRest() throws Exception {
+        String present = storeBlob("present file");
+        queue.enqueue("ORDER-3", List.of(item(present), item("orig_missing.pdf")));
+        PrintJob job = jobs.values().iterator().next();
+
+        poll();
+
+        assertEquals(PrintJob.Status.PENDING, job.getStatus());
+        assertTrue(job.getLastError().contains("orig_missing.pdf"), job.getLastError());
+        assertEquals(0, server.messages().size());
+        assertTrue(Files.exists(uploadDir.resolve(present)));
+    }
+
+    /** One scheduled poll, waiting for the deliveries it handed to the workers. */
+    private void poll() throws Exception {
+        for (Future<?> delivery : worker.submitDueJobs()) {
+            delivery.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private String storeBlob(String content) throws Exception {
+        return contentStore.storeOriginal(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), ".pdf")
+                .getFileName();
+    }
+
+    private static FileOrderItem item(String fileName) {
+        return new FileOrderItem(null, fileName, 1, 0, 1, 0, 1, false);
+    }
+
+    /**
+     * Just the repository methods the queue uses, over a map; entities are returned by reference,
+     * like managed entities inside a transaction.
+     */
+    private PrintJobRepository inMemoryRepository() {
+        PrintJobRepository repository = mock(PrintJobRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(repository.findByOrderReference(anyString())).thenAnswer(call -> jobs.values().stream()
+                .filter(job -> job.getOrderReference().equals(call.getArgument(0))).findFirst());
+        when(repository.saveAndFlush(any(PrintJob.class))).thenAnswer(call -> {
+            PrintJob job = call.getArgument(0);
+            job.setId(ids.incrementAndGet());
+            job.onCreate();
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        when(repository.findById(anyLong())).thenAnswer(call -> Optional.ofNullable(jobs.get(call.<Long>getArgument(0))));
+        when(repository.findDueIds(any(), any(), any(Pageable.class))).thenAnswer(call -> jobs.values().stream()
+                .filter(job -> job.getStatus() == call.getArgument(0)
+                        && !job.getNextAttemptAt().isAfter(call.<LocalDateTime>getArgument(1)))
+                .map(PrintJob::getId).toList());
+        when(repository.claim(anyLong(), any(), any())).thenAnswer(call -> {
+            PrintJob job = jobs.get(call.<Long>getArgument(0));
+            synchronized (job) {
+                if (job.getStatus() != PrintJob.Status.PENDING || job.getNextAttemptAt().isAfter(call.getArgument(1))) {
+                    return 0;
+                }
+                job.setNextAttemptAt(call.getArgument(2));
+                job.setAttempts(job.getAttempts() + 1);
+                return 1;
+            }
+        });
+        return repository;
+    }
+}
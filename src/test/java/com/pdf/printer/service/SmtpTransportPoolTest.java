@@ -0,0 +1,113 @@
+package com.pdf.printer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * {@link SmtpTransportPool} against {@link SmtpStandIn}: connection reuse, reconnecting after the
+ * server hangs up, and rejections surfacing to the caller.
+ */
+class SmtpTransportPoolTest {
+
+    private SmtpStandIn server;
+    private Session session;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new SmtpStandIn();
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", "127.0.0.1");
+        properties.put("mail.smtp.port", String.valueOf(server.port()));
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        session = Session.getInstance(properties);
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void consecutiveMessagesShareOneConnection() throws Exception {
+        try (SmtpTransportPool pool = pool(Duration.ofMinutes(1))) {
+            try (SmtpTransportPool.Connection connection = pool.acquire()) {
+                for (int i = 1; i <= 3; i++) {
+                    connection.send(message("Print order " + i));
+                }
+            }
+            try (SmtpTransportPool.Connection connection = pool.acquire()) {
+                connection.send(message("Print order 4"));
+            }
+        }
+        assertEquals(4, server.messages().size());
+        assertEquals(1, server.connections());
+        assertTrue(server.messages().get(3).contains("Subject: Print order 4"));
+    }
+
+    @Test
+    void reconnectsWhenTheServerDroppedTheConnection() throws Exception {
+        server.closeAfterEachMessage(true);
+        try (SmtpTransportPool pool = pool(Duration.ofMinutes(1));
+             SmtpTransportPool.Connection connection = pool.acquire()) {
+            connection.send(message("Print order 1"));
+            connection.send(message("Print order 2"));
+        }
+        assertEquals(2, server.messages().size());
+        assertEquals(2, server.connections());
+    }
+
+    @Test
+    void rejectionIsThrownWithoutRetrying() throws Exception {
+        server.rejectRecipients(true);
+        try (SmtpTransportPool pool = pool(Duration.ofMinutes(1));
+             SmtpTransportPool.Connection connection = pool.acquire()) {
+            assertThrows(MessagingException.class, () -> connection.send(message("Print order 1")));
+        }
+        assertEquals(0, server.messages().size());
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void idleConnectionsAreClosed() throws Exception {
+        try (SmtpTransportPool pool = pool(Duration.ofMillis(1))) {
+            try (SmtpTransportPool.Connection connection = pool.acquire()) {
+                connection.send(message("Print order 1"));
+            }
+            Thread.sleep(20);
+            pool.closeIdle();
+            try (SmtpTransportPool.Connection connection = pool.acquire()) {
+                connection.send(message("Print order 2"));
+            }
+        }
+        assertEquals(2, server.messages().size());
+        assertEquals(2, server.connections());
+    }
+
+    private SmtpTransportPool pool(Duration idleTimeout) {
+        return new SmtpTransportPool(session, "127.0.0.1", server.port(), null, null, 1, idleTimeout);
+    }
+
+    private MimeMessage message(String subject) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("kiosk@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("printer@example.com"));
+        message.setSubject(subject);
+        message.setText("Order details");
+        return message;
+    }
+}